@@ -1,27 +1,23 @@
 package com.ai.repurposer;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicLong;
 
 @RestController
@@ -30,82 +26,146 @@ public class AIController {
     private static final long RESET_INTERVAL_MS = 24L * 60L * 60L * 1000L;
 
     private final UserStore userStore;
-    private final ObjectMapper mapper = new ObjectMapper();
+    private final UpstreamClient upstreamClient;
+    private final GenerationExecutor generationExecutor;
+    private final TokenUsageLedger tokenUsageLedger;
+    private final GenerationHistory generationHistory;
+    private final TrafficCapture trafficCapture;
     private final Map<String, Integer> usageByIp = new ConcurrentHashMap<>();
     private final AtomicLong lastReset = new AtomicLong(System.currentTimeMillis());
 
-    public AIController(UserStore userStore) {
+    public AIController(
+        UserStore userStore,
+        UpstreamClient upstreamClient,
+        GenerationExecutor generationExecutor,
+        TokenUsageLedger tokenUsageLedger,
+        GenerationHistory generationHistory,
+        TrafficCapture trafficCapture
+    ) {
         this.userStore = userStore;
+        this.upstreamClient = upstreamClient;
+        this.generationExecutor = generationExecutor;
+        this.tokenUsageLedger = tokenUsageLedger;
+        this.generationHistory = generationHistory;
+        this.trafficCapture = trafficCapture;
     }
 
     @PostMapping("/generate")
-    public ResponseEntity<List<String>> generate(
+    public DeferredResult<ResponseEntity<List<String>>> generate(
         @RequestBody Map<String, String> body,
         @RequestParam String email,
         HttpServletRequest request
     ) {
+        RequestTimings timings = RequestTimings.of(request);
         String requestedEmail = normalizeEmail(email);
-        String token = AuthTokenInterceptor.extractToken(request);
-        if (token.isBlank() || !token.equalsIgnoreCase(requestedEmail)) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(List.of("Unauthorized"));
+        String principal = AuthTokenInterceptor.authenticatedEmail(request);
+        if (principal.isBlank() || !principal.equalsIgnoreCase(requestedEmail)) {
+            return respond(HttpStatus.UNAUTHORIZED, "Unauthorized");
         }
 
+        long lookupStarted = timings.start();
         User user = userStore.findByEmail(requestedEmail).orElse(null);
+        timings.record("user", lookupStarted);
         if (user == null) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(List.of("Unauthorized"));
+            return respond(HttpStatus.UNAUTHORIZED, "Unauthorized");
         }
 
-        String plan = normalizePlan(user.plan);
-        if ("free".equals(plan)) {
-            enforceDailyReset();
-            String ip = extractClientIp(request);
-            int count = usageByIp.getOrDefault(ip, 0);
-            if (count >= FREE_LIMIT) {
-                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(List.of("Free limit reached. Upgrade."));
-            }
-            usageByIp.put(ip, count + 1);
-        }
+        String plan = Plans.normalize(user.plan);
+        trafficCapture.noteUser(request, requestedEmail, plan);
 
         String input = body.getOrDefault("text", "").trim();
+        trafficCapture.noteInput(request, input);
         if (input.isBlank()) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(List.of("Input text is required."));
+            return respond(HttpStatus.BAD_REQUEST, "Input text is required.");
         }
 
-        String apiKey = System.getenv("OPENAI_API_KEY");
-        if (apiKey == null || apiKey.isBlank()) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(List.of("API key missing"));
+        if (!upstreamClient.isConfigured()) {
+            return respond(HttpStatus.INTERNAL_SERVER_ERROR, "API key missing");
         }
 
-        String prompt =
-            "You are an expert short-form content strategist.
+        long promptStarted = timings.start();
+        String prompt = buildPrompt(input);
+        timings.record("prompt", promptStarted);
 
-Goal:
-If user gives an IDEA, expand it and create 4 short videos.
-If user gives a YouTube URL, assume it is a long video and repurpose it into 4 best short videos based on the most valuable moments.
+        long budgetStarted = timings.start();
+        long reserved = tokenUsageLedger.estimateTokens(prompt);
+        Optional<String> overBudget = tokenUsageLedger.reserve(requestedEmail, plan, reserved);
+        timings.record("budget", budgetStarted);
+        if (overBudget.isPresent()) {
+            return respond(HttpStatus.TOO_MANY_REQUESTS, overBudget.get());
+        }
 
-Important rules:
-1. Output exactly 4 sections only: Video 1, Video 2, Video 3, Video 4.
-2. For each section include:
-   - Duration (recommended short length, e.g. 00:30 to 00:45)
-   - Best Part / Hook (what moment to use and why)
-   - Caption (1 strong line)
-   - Description (platform-ready, clear CTA)
-   - Tips (2-4 practical tips for editing/posting)
-3. Keep language simple, engaging, and creator-friendly.
-4. No extra intro/outro text outside the 4 sections.
-5. If input is an IDEA (not URL), first infer a logical long-form structure, then split into 4 strongest short-video angles.
-6. If input is a URL and no transcript/content is available, still produce high-quality inferred output and clearly label inferred assumptions inside each section in one short line.
+        if ("free".equals(plan)) {
+            long quotaStarted = timings.start();
+            enforceDailyReset();
+            String ip = extractClientIp(request);
+            int count = usageByIp.getOrDefault(ip, 0);
+            if (count >= FREE_LIMIT) {
+                timings.record("quota", quotaStarted);
+                tokenUsageLedger.release(requestedEmail, reserved);
+                return respond(HttpStatus.TOO_MANY_REQUESTS, "Free limit reached. Upgrade.");
+            }
+            usageByIp.put(ip, count + 1);
+            timings.record("quota", quotaStarted);
+        }
 
-User input:" +
-                input;
+        UpstreamCall call = upstreamClient.newCall(requestedTimeoutMillis(request));
+        DeferredResult<ResponseEntity<List<String>>> result = new DeferredResult<>(Math.max(call.remainingMillis(), 1L));
+        result.onTimeout(() -> {
+            upstreamClient.cancel(call, UpstreamCall.CancelReason.DEADLINE);
+            result.setResult(ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(List.of("AI request timed out")));
+        });
+        result.onError(ex -> upstreamClient.cancel(call, UpstreamCall.CancelReason.CLIENT_DISCONNECT));
+        try {
+            generationExecutor.execute(() -> result.setResult(complete(requestedEmail, input, prompt, reserved, call, timings)));
+        } catch (RejectedExecutionException ex) {
+            tokenUsageLedger.release(requestedEmail, reserved);
+            result.setResult(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(List.of("AI service busy, try again shortly")));
+        }
+        return result;
+    }
 
+    private ResponseEntity<List<String>> complete(
+        String email, String input, String prompt, long reserved, UpstreamCall call, RequestTimings timings
+    ) {
         try {
-            String content = callOpenAI(prompt, apiKey);
-            List<String> blocks = splitBlocks(content);
+            long upstreamStarted = timings.start();
+            UpstreamClient.Completion completion;
+            try {
+                completion = upstreamClient.complete(prompt, call);
+            } catch (UpstreamCall.CancelledException ex) {
+                if (call.wasDispatched()) {
+                    long promptTokens = Math.min((prompt.length() + 3L) / 4L, reserved);
+                    tokenUsageLedger.settle(email, reserved, promptTokens, reserved - promptTokens);
+                } else {
+                    tokenUsageLedger.release(email, reserved);
+                }
+                throw ex;
+            } catch (IOException | RuntimeException ex) {
+                tokenUsageLedger.release(email, reserved);
+                throw ex;
+            } finally {
+                timings.record("upstream", upstreamStarted);
+            }
+            if (completion.totalTokens() > 0) {
+                tokenUsageLedger.settle(email, reserved, completion.promptTokens(), completion.completionTokens());
+            } else {
+                tokenUsageLedger.settle(email, reserved, (prompt.length() + 3L) / 4L, (completion.content().length() + 3L) / 4L);
+            }
+            long splitStarted = timings.start();
+            List<String> blocks = splitBlocks(completion.content());
+            timings.record("split", splitStarted);
             if (blocks.isEmpty()) {
                 return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(List.of("No generated content returned"));
             }
+            long historyStarted = timings.start();
+            generationHistory.append(email, input, blocks);
+            timings.record("history", historyStarted);
             return ResponseEntity.ok(blocks);
+        } catch (UpstreamCall.CancelledException ex) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(List.of("AI request timed out"));
+        } catch (UpstreamBusyException ex) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(List.of(ex.getMessage()));
         } catch (IOException ex) {
             return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(List.of("AI service unavailable"));
         } catch (RuntimeException ex) {
@@ -113,76 +173,93 @@ User input:" +
         }
     }
 
-    private void enforceDailyReset() {
-        long now = System.currentTimeMillis();
-        long prev = lastReset.get();
-        if (now - prev <= RESET_INTERVAL_MS) {
-            return;
+    @GetMapping("/history")
+    public ResponseEntity<?> history(
+        @RequestParam String email,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "20") int limit,
+        HttpServletRequest request
+    ) {
+        String requestedEmail = normalizeEmail(email);
+        String principal = AuthTokenInterceptor.authenticatedEmail(request);
+        if (principal.isBlank() || !principal.equalsIgnoreCase(requestedEmail)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized");
         }
-        if (lastReset.compareAndSet(prev, now)) {
-            usageByIp.clear();
+        User user = userStore.findByEmail(requestedEmail).orElse(null);
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized");
         }
-    }
 
-    private String callOpenAI(String prompt, String apiKey) throws IOException {
-        URL url = new URL("https://api.openai.com/v1/chat/completions");
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("POST");
-        conn.setConnectTimeout(15000);
-        conn.setReadTimeout(45000);
-        conn.setRequestProperty("Authorization", "Bearer " + apiKey);
-        conn.setRequestProperty("Content-Type", "application/json");
-        conn.setDoOutput(true);
-
-        Map<String, Object> requestBody = new LinkedHashMap<>();
-        requestBody.put("model", "gpt-4o-mini");
-        requestBody.put("messages", List.of(Map.of("role", "user", "content", prompt)));
-
-        String json = mapper.writeValueAsString(requestBody);
-        try (OutputStream os = conn.getOutputStream()) {
-            os.write(json.getBytes(StandardCharsets.UTF_8));
-        }
-
-        int statusCode = conn.getResponseCode();
-        String response = readResponse(conn, statusCode);
-
-        Map<String, Object> map = mapper.readValue(response, Map.class);
-        if (statusCode >= 400 || map.containsKey("error")) {
-            Object errorObj = map.get("error");
-            if (errorObj instanceof Map<?, ?> errorMap) {
-                Object msg = errorMap.get("message");
-                if (msg != null) {
-                    throw new RuntimeException("OpenAI error: " + msg);
-                }
+        long before = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                before = Long.parseLong(cursor.trim());
+            } catch (NumberFormatException ex) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid cursor");
             }
-            throw new RuntimeException("OpenAI error: request failed");
         }
-
-        List<Map<String, Object>> choices = (List<Map<String, Object>>) map.get("choices");
-        if (choices == null || choices.isEmpty()) {
-            throw new RuntimeException("OpenAI error: empty response");
+        try {
+            GenerationHistory.Page page = generationHistory.page(
+                requestedEmail, Plans.normalize(user.plan), before, Math.min(Math.max(limit, 1), 100));
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("items", page.items());
+            out.put("nextCursor", page.nextCursor());
+            return ResponseEntity.ok(out);
+        } catch (IOException ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("History unavailable");
         }
+    }
+
+    private static DeferredResult<ResponseEntity<List<String>>> respond(HttpStatus status, String message) {
+        DeferredResult<ResponseEntity<List<String>>> result = new DeferredResult<>();
+        result.setResult(ResponseEntity.status(status).body(List.of(message)));
+        return result;
+    }
 
-        Map<String, Object> first = choices.get(0);
-        Map<String, Object> message = (Map<String, Object>) first.get("message");
-        if (message == null || message.get("content") == null) {
-            throw new RuntimeException("OpenAI error: missing content");
+    private static long requestedTimeoutMillis(HttpServletRequest request) {
+        String header = request.getHeader("X-Request-Timeout-Ms");
+        if (header == null || header.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(header.trim());
+        } catch (NumberFormatException ex) {
+            return 0L;
         }
-        return message.get("content").toString();
     }
 
-    private static String readResponse(HttpURLConnection conn, int code) throws IOException {
-        InputStream stream = code >= 400 ? conn.getErrorStream() : conn.getInputStream();
-        if (stream == null) {
-            return "{}";
+    private static String buildPrompt(String input) {
+        return """
+            You are an expert short-form content strategist.
+
+            Goal:
+            If user gives an IDEA, expand it and create 4 short videos.
+            If user gives a YouTube URL, assume it is a long video and repurpose it into 4 best short videos based on the most valuable moments.
+
+            Important rules:
+            1. Output exactly 4 sections only: Video 1, Video 2, Video 3, Video 4.
+            2. For each section include:
+               - Duration (recommended short length, e.g. 00:30 to 00:45)
+               - Best Part / Hook (what moment to use and why)
+               - Caption (1 strong line)
+               - Description (platform-ready, clear CTA)
+               - Tips (2-4 practical tips for editing/posting)
+            3. Keep language simple, engaging, and creator-friendly.
+            4. No extra intro/outro text outside the 4 sections.
+            5. If input is an IDEA (not URL), first infer a logical long-form structure, then split into 4 strongest short-video angles.
+            6. If input is a URL and no transcript/content is available, still produce high-quality inferred output and clearly label inferred assumptions inside each section in one short line.
+
+            User input:""" + input;
+    }
+
+    private void enforceDailyReset() {
+        long now = System.currentTimeMillis();
+        long prev = lastReset.get();
+        if (now - prev <= RESET_INTERVAL_MS) {
+            return;
         }
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
-            String line;
-            StringBuilder out = new StringBuilder();
-            while ((line = br.readLine()) != null) {
-                out.append(line);
-            }
-            return out.toString();
+        if (lastReset.compareAndSet(prev, now)) {
+            usageByIp.clear();
         }
     }
 
@@ -197,17 +274,6 @@ User input:" +
         return out;
     }
 
-    private static String normalizePlan(String plan) {
-        String normalized = plan == null ? "free" : plan.trim().toLowerCase();
-        if ("advanced".equals(normalized) || "agency".equals(normalized)) {
-            return "advanced";
-        }
-        if ("pro".equals(normalized) || "premium".equals(normalized)) {
-            return "pro";
-        }
-        return "free";
-    }
-
     private static String normalizeEmail(String email) {
         return email == null ? "" : email.trim().toLowerCase();
     }
@@ -0,0 +1,25 @@
+package com.ai.repurposer;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+@Component
+public class AdminKeys {
+    private static final String DEFAULT_KEY = "abhi-nonu01";
+
+    private final byte[] adminKey;
+
+    public AdminKeys(@Value("${app.admin-upgrade-key:}") String adminUpgradeKey) {
+        String configuredKey = adminUpgradeKey == null ? "" : adminUpgradeKey.trim();
+        this.adminKey = (configuredKey.isBlank() ? DEFAULT_KEY : configuredKey).getBytes(StandardCharsets.UTF_8);
+    }
+
+    public boolean isAdminRequest(HttpServletRequest request) {
+        String providedKey = request.getHeader("X-Admin-Key");
+        return providedKey != null && MessageDigest.isEqual(adminKey, providedKey.trim().getBytes(StandardCharsets.UTF_8));
+    }
+}
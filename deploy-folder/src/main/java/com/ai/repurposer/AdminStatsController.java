@@ -0,0 +1,60 @@
+package com.ai.repurposer;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+public class AdminStatsController {
+    private final UpstreamPool upstreamPool;
+    private final UpstreamClient upstreamClient;
+    private final TokenUsageLedger tokenUsageLedger;
+    private final GenerationExecutor generationExecutor;
+    private final AdminKeys adminKeys;
+
+    public AdminStatsController(
+        UpstreamPool upstreamPool,
+        UpstreamClient upstreamClient,
+        TokenUsageLedger tokenUsageLedger,
+        GenerationExecutor generationExecutor,
+        AdminKeys adminKeys
+    ) {
+        this.upstreamPool = upstreamPool;
+        this.upstreamClient = upstreamClient;
+        this.tokenUsageLedger = tokenUsageLedger;
+        this.generationExecutor = generationExecutor;
+        this.adminKeys = adminKeys;
+    }
+
+    @GetMapping("/admin/upstream")
+    public ResponseEntity<?> upstream(HttpServletRequest request) {
+        if (!adminKeys.isAdminRequest(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Admin key required");
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("pool", upstreamPool.describe());
+        out.put("cancellation", upstreamClient.cancellationStats());
+        Map<String, Object> concurrency = upstreamClient.concurrencyStats();
+        concurrency.put("virtualThreads", generationExecutor.usesVirtualThreads());
+        out.put("concurrency", concurrency);
+        return ResponseEntity.ok(out);
+    }
+
+    @GetMapping("/admin/usage/top")
+    public ResponseEntity<?> topUsage(
+        @RequestParam(defaultValue = "day") String period,
+        @RequestParam(defaultValue = "10") int limit,
+        HttpServletRequest request
+    ) {
+        if (!adminKeys.isAdminRequest(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Admin key required");
+        }
+        return ResponseEntity.ok(tokenUsageLedger.topConsumers(period.trim().toLowerCase(), Math.min(limit, 1000)));
+    }
+}
@@ -1,7 +1,6 @@
 package com.ai.repurposer;
 
 import jakarta.servlet.http.HttpServletRequest;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -23,27 +22,42 @@ import java.util.Map;
 public class AuthController {
     private final UserStore userStore;
     private final Passwords passwords;
-    private final String adminUpgradeKey;
+    private final AuthTokens authTokens;
+    private final MailOutbox mailOutbox;
+    private final GenerationHistory generationHistory;
+    private final TokenUsageLedger tokenUsageLedger;
+    private final TrafficCapture trafficCapture;
+    private final AdminKeys adminKeys;
 
     public AuthController(
         UserStore userStore,
         Passwords passwords,
-        @Value("${app.admin-upgrade-key:}") String adminUpgradeKey
+        AuthTokens authTokens,
+        MailOutbox mailOutbox,
+        GenerationHistory generationHistory,
+        TokenUsageLedger tokenUsageLedger,
+        TrafficCapture trafficCapture,
+        AdminKeys adminKeys
     ) {
         this.userStore = userStore;
         this.passwords = passwords;
-        String configuredKey = adminUpgradeKey == null ? "" : adminUpgradeKey.trim();
-        this.adminUpgradeKey = configuredKey.isBlank() ? "abhi-nonu01" : configuredKey;
+        this.authTokens = authTokens;
+        this.mailOutbox = mailOutbox;
+        this.generationHistory = generationHistory;
+        this.tokenUsageLedger = tokenUsageLedger;
+        this.trafficCapture = trafficCapture;
+        this.adminKeys = adminKeys;
     }
 
     @PostMapping("/signup")
-    public ResponseEntity<String> signup(@RequestBody User body) {
+    public ResponseEntity<String> signup(@RequestBody User body, HttpServletRequest request) {
         String firstName = body.firstName == null ? "" : body.firstName.trim();
         String lastName = body.lastName == null ? "" : body.lastName.trim();
         Integer age = body.age;
         String gender = body.gender == null ? "" : body.gender.trim().toLowerCase();
         String email = normalizeEmail(body.email);
         String password = body.password == null ? "" : body.password;
+        trafficCapture.noteUser(request, email, "free");
 
         if (!isValidEmail(email)) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Valid email required");
@@ -75,13 +89,20 @@ public class AuthController {
         u.gender = gender;
         users.add(u);
         userStore.saveUsers(users);
+        mailOutbox.enqueue(
+            "signup:" + email,
+            email,
+            "Welcome to Repurposer",
+            "Hi " + firstName + ",\n\nYour Repurposer account is ready. Sign in with " + email + " to start generating."
+        );
         return ResponseEntity.ok("Signup success");
     }
 
     @PostMapping("/login")
-    public ResponseEntity<String> login(@RequestBody User body) {
+    public ResponseEntity<String> login(@RequestBody User body, HttpServletRequest request) {
         String email = normalizeEmail(body.email);
         String password = body.password == null ? "" : body.password;
+        trafficCapture.noteUser(request, email, null);
         if (email.isBlank() || password.isBlank()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid");
         }
@@ -101,7 +122,7 @@ public class AuthController {
                 changed = true;
             }
             user.email = email;
-            String normalizedPlan = normalizePlan(user.plan);
+            String normalizedPlan = Plans.normalize(user.plan);
             if (!normalizedPlan.equals(user.plan)) {
                 user.plan = normalizedPlan;
                 changed = true;
@@ -109,7 +130,9 @@ public class AuthController {
             if (changed) {
                 userStore.saveUsers(users);
             }
-            return ResponseEntity.ok(user.email);
+            return ResponseEntity.ok()
+                .header("X-Auth-Token", authTokens.issue(user.email))
+                .body(user.email);
         }
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid");
     }
@@ -121,11 +144,16 @@ public class AuthController {
     }
 
     @GetMapping("/plan")
-    public ResponseEntity<String> plan(@RequestParam String email) {
+    public ResponseEntity<String> plan(@RequestParam String email, HttpServletRequest request) {
         String normalizedEmail = normalizeEmail(email);
-        return userStore.findByEmail(normalizedEmail)
-            .map(user -> ResponseEntity.ok(normalizePlan(user.plan)))
-            .orElseGet(() -> ResponseEntity.ok("free"));
+        String etag = ETags.of("u", userStore.userVersion(normalizedEmail));
+        if (ETags.matches(request, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        String plan = userStore.findByEmail(normalizedEmail)
+            .map(user -> Plans.normalize(user.plan))
+            .orElse("free");
+        return ResponseEntity.ok().eTag(etag).body(plan);
     }
 
     @PostMapping("/upgrade")
@@ -135,14 +163,14 @@ public class AuthController {
         @RequestParam(defaultValue = "monthly") String cycle,
         HttpServletRequest request
     ) {
-        if (!isAdminRequest(request)) {
+        if (!adminKeys.isAdminRequest(request)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Admin key required");
         }
 
         String normalizedEmail = normalizeEmail(email);
-        String normalizedPlan = normalizePlan(plan);
+        String normalizedPlan = Plans.normalize(plan);
         String normalizedCycle = normalizeCycle(cycle);
-        Long expiry = calculateExpiryEpochDay(normalizedPlan, normalizedCycle);
+        Long expiry = Plans.expiryEpochDay(normalizedPlan, normalizedCycle);
 
         List<User> users = new ArrayList<>(userStore.loadUsers());
         boolean updated = false;
@@ -162,38 +190,44 @@ public class AuthController {
         }
 
         userStore.saveUsers(users);
+        sendPlanReceipt(normalizedEmail, normalizedPlan, normalizedCycle, expiry);
         return ResponseEntity.ok("Upgraded");
     }
 
     @GetMapping("/admin/users")
     public ResponseEntity<?> adminUsers(HttpServletRequest request) {
-        if (!isAdminRequest(request)) {
+        if (!adminKeys.isAdminRequest(request)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Admin key required");
         }
 
+        String etag = ETags.of(userStore.version(), LocalDate.now().toEpochDay());
+        if (ETags.matches(request, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
         List<Map<String, Object>> users = userStore.loadUsers().stream()
             .sorted(Comparator.comparing(u -> normalizeEmail(u.email)))
             .map(u -> {
                 Map<String, Object> item = new HashMap<>();
                 item.put("email", normalizeEmail(u.email));
-                item.put("plan", normalizePlan(u.plan));
+                item.put("plan", Plans.normalize(u.plan));
                 item.put("cycle", normalizeCycle(u.billingCycle));
                 item.put("remainingDays", remainingDays(u.planExpiresAtEpochDay));
                 return item;
             })
             .toList();
 
-        return ResponseEntity.ok(users);
+        return ResponseEntity.ok().eTag(etag).body(users);
     }
 
     @PostMapping("/admin/users/plan")
     public ResponseEntity<String> adminUpdateUserPlan(@RequestBody Map<String, String> body, HttpServletRequest request) {
-        if (!isAdminRequest(request)) {
+        if (!adminKeys.isAdminRequest(request)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Admin key required");
         }
 
         String email = normalizeEmail(body.getOrDefault("email", ""));
-        String plan = normalizePlan(body.getOrDefault("plan", "free"));
+        String plan = Plans.normalize(body.getOrDefault("plan", "free"));
         String cycle = normalizeCycle(body.getOrDefault("cycle", "monthly"));
         if (email.isBlank()) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Missing email");
@@ -205,7 +239,7 @@ public class AuthController {
             if (email.equalsIgnoreCase(user.email)) {
                 user.plan = plan;
                 user.billingCycle = plan.equals("free") ? "none" : cycle;
-                user.planExpiresAtEpochDay = calculateExpiryEpochDay(plan, cycle);
+                user.planExpiresAtEpochDay = Plans.expiryEpochDay(plan, cycle);
                 updated = true;
                 break;
             }
@@ -216,34 +250,39 @@ public class AuthController {
         }
 
         userStore.saveUsers(users);
+        sendPlanReceipt(email, plan, cycle, Plans.expiryEpochDay(plan, cycle));
         return ResponseEntity.ok("Plan updated");
     }
 
     @GetMapping("/account")
-    public ResponseEntity<Map<String, String>> account(@RequestParam String email) {
+    public ResponseEntity<Map<String, String>> account(@RequestParam String email, HttpServletRequest request) {
         String normalizedEmail = normalizeEmail(email);
+        String etag = ETags.of("u", userStore.userVersion(normalizedEmail));
+        if (ETags.matches(request, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         Map<String, String> out = new HashMap<>();
 
         userStore.findByEmail(normalizedEmail).ifPresentOrElse(user -> {
             out.put("email", normalizeEmail(user.email));
-            out.put("plan", normalizePlan(user.plan));
+            out.put("plan", Plans.normalize(user.plan));
         }, () -> {
             out.put("email", normalizedEmail);
             out.put("plan", "free");
         });
 
-        return ResponseEntity.ok(out);
+        return ResponseEntity.ok().eTag(etag).body(out);
     }
 
     @PostMapping("/account/update")
     public ResponseEntity<String> updateAccount(@RequestBody Map<String, String> body, HttpServletRequest request) {
-        String token = AuthTokenInterceptor.extractToken(request);
-        if (token.isBlank()) {
+        String principal = AuthTokenInterceptor.authenticatedEmail(request);
+        if (principal.isBlank()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Missing auth token");
         }
 
         String email = normalizeEmail(body.getOrDefault("email", ""));
-        if (!token.equalsIgnoreCase(email)) {
+        if (!principal.equalsIgnoreCase(email)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Token does not match account");
         }
 
@@ -281,43 +320,61 @@ public class AuthController {
             target.password = passwords.hash(password);
         }
 
-        target.plan = normalizePlan(target.plan);
+        target.plan = Plans.normalize(target.plan);
         userStore.saveUsers(users);
+        if (!newEmail.equalsIgnoreCase(email)) {
+            generationHistory.rename(email, newEmail);
+            tokenUsageLedger.rename(email, newEmail);
+        }
+        if (!newEmail.equalsIgnoreCase(email) || !password.isBlank()) {
+            authTokens.revokeAll(email);
+            return ResponseEntity.ok()
+                .header("X-Auth-Token", authTokens.issue(target.email))
+                .body("Account updated");
+        }
         return ResponseEntity.ok("Account updated");
     }
 
     @PostMapping("/account/delete")
     public ResponseEntity<String> deleteAccount(@RequestParam String email, HttpServletRequest request) {
-        String token = AuthTokenInterceptor.extractToken(request);
+        String principal = AuthTokenInterceptor.authenticatedEmail(request);
         String normalizedEmail = normalizeEmail(email);
-        if (token.isBlank() || !token.equalsIgnoreCase(normalizedEmail)) {
+        if (principal.isBlank() || !principal.equalsIgnoreCase(normalizedEmail)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Token does not match account");
         }
 
         List<User> users = new ArrayList<>(userStore.loadUsers());
         boolean removed = users.removeIf(user -> normalizedEmail.equalsIgnoreCase(user.email));
         userStore.saveUsers(users);
+        authTokens.revokeAll(normalizedEmail);
+        generationHistory.delete(normalizedEmail);
         return ResponseEntity.ok(removed ? "Deleted" : "User not found");
     }
 
     @PostMapping("/logout")
     public ResponseEntity<String> logout(@RequestParam(required = false) String email, HttpServletRequest request) {
-        String token = AuthTokenInterceptor.extractToken(request);
-        if (token.isBlank()) {
+        String principal = AuthTokenInterceptor.authenticatedEmail(request);
+        if (principal.isBlank()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Missing auth token");
         }
-        if (email != null && !email.isBlank() && !token.equalsIgnoreCase(normalizeEmail(email))) {
+        trafficCapture.noteUser(request, principal, null);
+        if (email != null && !email.isBlank() && !principal.equalsIgnoreCase(normalizeEmail(email))) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Token does not match account");
         }
+        AuthTokenInterceptor.authenticatedClaims(request).ifPresent(authTokens::revoke);
         return ResponseEntity.ok("Logged out");
     }
 
-    private static Long calculateExpiryEpochDay(String plan, String cycle) {
+    private void sendPlanReceipt(String email, String plan, String cycle, Long expiryEpochDay) {
         if ("free".equals(plan)) {
-            return null;
-        }
-        long days = "yearly".equals(cycle) ? 365 : 30;
-        return LocalDate.now().plusDays(days).toEpochDay();
+            return;
+        }
+        mailOutbox.enqueue(
+            email,
+            "Your Repurposer " + plan + " plan receipt",
+            "Thanks for upgrading to " + plan + " (" + cycle + ").\nYour plan is active until "
+                + LocalDate.ofEpochDay(expiryEpochDay) + "."
+        );
     }
 
     private static long remainingDays(Long expiryEpochDay) {
@@ -328,11 +385,6 @@ public class AuthController {
         return Math.max(days, 0);
     }
 
-    private boolean isAdminRequest(HttpServletRequest request) {
-        String providedKey = request.getHeader("X-Admin-Key");
-        return providedKey != null && adminUpgradeKey.equals(providedKey.trim());
-    }
-
     private static String normalizeEmail(String email) {
         return email == null ? "" : email.trim().toLowerCase();
     }
@@ -345,17 +397,6 @@ public class AuthController {
         return "male".equals(gender) || "female".equals(gender) || "other".equals(gender);
     }
 
-    private static String normalizePlan(String plan) {
-        String normalized = plan == null ? "free" : plan.trim().toLowerCase();
-        if ("advanced".equals(normalized) || "agency".equals(normalized)) {
-            return "advanced";
-        }
-        if ("pro".equals(normalized) || "premium".equals(normalized)) {
-            return "pro";
-        }
-        return "free";
-    }
-
     private static String normalizeCycle(String cycle) {
         String normalized = cycle == null ? "monthly" : cycle.trim().toLowerCase();
         if ("yearly".equals(normalized)) {
@@ -366,4 +407,4 @@ public class AuthController {
         }
         return "monthly";
     }
-}
+}
@@ -1,26 +1,38 @@
 package com.ai.repurposer;
 
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
 
 import java.io.IOException;
+import java.util.Optional;
 import java.util.Set;
 
 @Component
 public class AuthTokenInterceptor implements HandlerInterceptor {
+    private static final Logger log = LoggerFactory.getLogger(AuthTokenInterceptor.class);
+
     private static final Set<String> PROTECTED_PREFIXES = Set.of(
         "/generate",
+        "/history",
         "/plan",
         "/account",
         "/logout"
     );
 
+    private static final String EMAIL_ATTRIBUTE = AuthTokenInterceptor.class.getName() + ".email";
+    private static final String CLAIMS_ATTRIBUTE = AuthTokenInterceptor.class.getName() + ".claims";
+
     private final UserStore userStore;
+    private final AuthTokens authTokens;
 
-    public AuthTokenInterceptor(UserStore userStore) {
+    public AuthTokenInterceptor(UserStore userStore, AuthTokens authTokens) {
         this.userStore = userStore;
+        this.authTokens = authTokens;
     }
 
     @Override
@@ -31,27 +43,48 @@ public class AuthTokenInterceptor implements HandlerInterceptor {
         }
 
         String path = request.getRequestURI();
-        if (!isProtected(path)) {
+        if (request.getDispatcherType() == DispatcherType.ASYNC || !isProtected(path)) {
             return true;
         }
 
+        RequestTimings timings = RequestTimings.of(request);
+        long authStarted = timings.start();
+        try {
+            return authenticate(request, response);
+        } finally {
+            timings.record("auth", authStarted);
+        }
+    }
+
+    private boolean authenticate(HttpServletRequest request, HttpServletResponse response) throws IOException {
         String token = extractToken(request);
         if (token.isBlank()) {
             writeError(response, HttpServletResponse.SC_UNAUTHORIZED, "Missing auth token");
             return false;
         }
 
-        String requestedEmail = request.getParameter("email");
-        if (requestedEmail != null && !requestedEmail.isBlank() && !token.equalsIgnoreCase(requestedEmail.trim())) {
-            writeError(response, HttpServletResponse.SC_FORBIDDEN, "Token does not match requested email");
+        Optional<AuthTokens.Claims> claims = authTokens.verify(token);
+        String email;
+        if (claims.isPresent()) {
+            email = claims.get().email();
+            request.setAttribute(CLAIMS_ATTRIBUTE, claims.get());
+        } else if (authTokens.acceptsLegacyTokens() && token.indexOf('@') > 0 && userStore.existsByEmail(token)) {
+            email = token.toLowerCase();
+            log.warn("Deprecated plain-email auth token accepted for {} on {}; it cannot be revoked. "
+                + "Sign in again for a signed token and unset AUTH_ACCEPT_LEGACY_TOKENS once clients have migrated",
+                email, request.getRequestURI());
+        } else {
+            writeError(response, HttpServletResponse.SC_UNAUTHORIZED, "Invalid auth token");
             return false;
         }
 
-        if (!userStore.existsByEmail(token)) {
-            writeError(response, HttpServletResponse.SC_UNAUTHORIZED, "Invalid auth token");
+        String requestedEmail = request.getParameter("email");
+        if (requestedEmail != null && !requestedEmail.isBlank() && !email.equalsIgnoreCase(requestedEmail.trim())) {
+            writeError(response, HttpServletResponse.SC_FORBIDDEN, "Token does not match requested email");
             return false;
         }
 
+        request.setAttribute(EMAIL_ATTRIBUTE, email);
         return true;
     }
 
@@ -64,15 +97,25 @@ public class AuthTokenInterceptor implements HandlerInterceptor {
         return false;
     }
 
+    public static String authenticatedEmail(HttpServletRequest request) {
+        Object email = request.getAttribute(EMAIL_ATTRIBUTE);
+        return email instanceof String value ? value : "";
+    }
+
+    public static Optional<AuthTokens.Claims> authenticatedClaims(HttpServletRequest request) {
+        Object claims = request.getAttribute(CLAIMS_ATTRIBUTE);
+        return claims instanceof AuthTokens.Claims value ? Optional.of(value) : Optional.empty();
+    }
+
     public static String extractToken(HttpServletRequest request) {
         String customHeader = request.getHeader("X-Auth-Token");
         if (customHeader != null && !customHeader.isBlank()) {
-            return customHeader.trim().toLowerCase();
+            return customHeader.trim();
         }
 
         String authorization = request.getHeader("Authorization");
         if (authorization != null && authorization.toLowerCase().startsWith("bearer ")) {
-            return authorization.substring(7).trim().toLowerCase();
+            return authorization.substring(7).trim();
         }
         return "";
     }
@@ -0,0 +1,136 @@
+package com.ai.repurposer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class AuthTokens {
+    private static final Logger log = LoggerFactory.getLogger(AuthTokens.class);
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final long ttlMillis;
+    private final boolean acceptLegacyTokens;
+    private final ThreadLocal<Mac> macs;
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    private final Map<String, Long> revokedBefore = new ConcurrentHashMap<>();
+
+    public AuthTokens(
+        @Value("${app.auth.token-secret:}") String secret,
+        @Value("${app.auth.token-ttl-hours:168}") long ttlHours,
+        @Value("${app.auth.accept-legacy-tokens:false}") boolean acceptLegacyTokens
+    ) {
+        byte[] keyBytes;
+        if (secret == null || secret.isBlank()) {
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+            log.warn("AUTH_TOKEN_SECRET is not set; using a random key, tokens will not survive a restart");
+        } else {
+            keyBytes = secret.trim().getBytes(StandardCharsets.UTF_8);
+        }
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+        this.ttlMillis = Math.max(ttlHours, 1L) * 60L * 60L * 1000L;
+        this.acceptLegacyTokens = acceptLegacyTokens;
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    public String issue(String email) {
+        long now = Math.max(System.currentTimeMillis(), revokedBefore.getOrDefault(email.toLowerCase(), 0L));
+        String payload = now + ":" + (now + ttlMillis) + ":" + email;
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        return ENCODER.encodeToString(payloadBytes) + "." + ENCODER.encodeToString(sign(payloadBytes));
+    }
+
+    public Optional<Claims> verify(String token) {
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot != token.lastIndexOf('.')) {
+            return Optional.empty();
+        }
+        String signature = token.substring(dot + 1);
+        byte[] payloadBytes;
+        byte[] signatureBytes;
+        try {
+            payloadBytes = DECODER.decode(token.substring(0, dot));
+            signatureBytes = DECODER.decode(signature);
+        } catch (IllegalArgumentException ex) {
+            return Optional.empty();
+        }
+        if (!MessageDigest.isEqual(sign(payloadBytes), signatureBytes)) {
+            return Optional.empty();
+        }
+
+        String[] fields = new String(payloadBytes, StandardCharsets.UTF_8).split(":", 3);
+        if (fields.length != 3) {
+            return Optional.empty();
+        }
+        Claims claims;
+        try {
+            claims = new Claims(fields[2], Long.parseLong(fields[0]), Long.parseLong(fields[1]), signature);
+        } catch (NumberFormatException ex) {
+            return Optional.empty();
+        }
+
+        if (claims.expiresAt <= System.currentTimeMillis() || revokedTokens.containsKey(signature)) {
+            return Optional.empty();
+        }
+        Long cutoff = revokedBefore.get(claims.email.toLowerCase());
+        if (cutoff != null && claims.issuedAt < cutoff) {
+            return Optional.empty();
+        }
+        return Optional.of(claims);
+    }
+
+    public boolean acceptsLegacyTokens() {
+        return acceptLegacyTokens;
+    }
+
+    public void revoke(Claims claims) {
+        long now = System.currentTimeMillis();
+        purgeExpired(now);
+        revokedTokens.put(claims.signature, claims.expiresAt);
+    }
+
+    public void revokeAll(String email) {
+        long now = System.currentTimeMillis();
+        purgeExpired(now);
+        revokedBefore.merge(email.toLowerCase(), now + 1L, Math::max);
+    }
+
+    private void purgeExpired(long now) {
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+        revokedBefore.values().removeIf(revokedAt -> revokedAt + ttlMillis <= now);
+    }
+
+    private byte[] sign(byte[] payload) {
+        Mac mac = macs.get();
+        mac.reset();
+        return mac.doFinal(payload);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to initialise token signer", e);
+        }
+    }
+
+    public record Claims(String email, long issuedAt, long expiresAt, String signature) {}
+}
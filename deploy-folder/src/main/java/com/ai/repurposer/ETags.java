@@ -0,0 +1,38 @@
+package com.ai.repurposer;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+final class ETags {
+    // Store versions restart at zero on every boot, so tags carry the boot time to stay unique.
+    // Tags are weak: Tomcat will not gzip a response that carries a strong ETag.
+    private static final String BOOT = Long.toString(System.currentTimeMillis(), 36);
+
+    private ETags() {
+    }
+
+    static String of(Object... parts) {
+        StringBuilder out = new StringBuilder("W/\"").append(BOOT);
+        for (Object part : parts) {
+            out.append('-').append(part);
+        }
+        return out.append('"').toString();
+    }
+
+    static boolean matches(HttpServletRequest request, String etag) {
+        String header = request.getHeader("If-None-Match");
+        if (header == null || header.isBlank()) {
+            return false;
+        }
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if ("*".equals(tag) || opaque(etag).equals(opaque(tag))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -0,0 +1,72 @@
+package com.ai.repurposer;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+public class GenerationExecutor {
+    private static final Logger log = LoggerFactory.getLogger(GenerationExecutor.class);
+
+    private final ThreadPoolExecutor executor;
+    private final SimpleAsyncTaskExecutor virtualExecutor;
+
+    public GenerationExecutor(
+        @Value("${app.generate.max-concurrency:64}") int maxConcurrency,
+        @Value("${app.generate.queue-capacity:256}") int queueCapacity,
+        @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
+    ) {
+        if (virtualThreads && Runtime.version().feature() >= 21) {
+            this.virtualExecutor = new SimpleAsyncTaskExecutor("generate-vt-");
+            this.virtualExecutor.setVirtualThreads(true);
+            this.executor = null;
+            return;
+        }
+        if (virtualThreads) {
+            log.warn("Virtual threads requested but running on Java {}; using the platform thread pool",
+                Runtime.version().feature());
+        }
+        int threads = Math.max(maxConcurrency, 1);
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = task -> {
+            Thread thread = new Thread(task, "generate-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(Math.max(queueCapacity, 1)), factory);
+        this.executor.allowCoreThreadTimeOut(true);
+        this.virtualExecutor = null;
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtualExecutor != null;
+    }
+
+    public void execute(Runnable task) throws RejectedExecutionException {
+        if (virtualExecutor != null) {
+            virtualExecutor.execute(task);
+        } else {
+            executor.execute(task);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (virtualExecutor != null) {
+            virtualExecutor.close();
+        } else {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,449 @@
+package com.ai.repurposer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+@Component
+public class GenerationHistory {
+    private static final Logger log = LoggerFactory.getLogger(GenerationHistory.class);
+    private static final int INDEX_ENTRY_BYTES = 12;
+    private static final int LOCK_STRIPES = 64;
+    private static final String OWNER_FILE = "owner";
+    private static final String TOMBSTONE_FILE = "deleted";
+    private static final long DAY_MS = 24L * 60L * 60L * 1000L;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ReentrantReadWriteLock[] locks = new ReentrantReadWriteLock[LOCK_STRIPES];
+    private final Map<String, Long> lastTimestamps = new ConcurrentHashMap<>();
+    private final UserStore userStore;
+    private final Path root;
+    private final long segmentBytes;
+    private final long compactionMinutes;
+    private final Map<String, Long> retentionDays = new HashMap<>();
+    private ScheduledExecutorService compactor;
+
+    public GenerationHistory(
+        UserStore userStore,
+        @Value("${app.history.dir:data/history}") String dir,
+        @Value("${app.history.segment-bytes:262144}") long segmentBytes,
+        @Value("${app.history.compaction-minutes:60}") long compactionMinutes,
+        @Value("${app.history.retention-days.free:7}") long freeDays,
+        @Value("${app.history.retention-days.pro:90}") long proDays,
+        @Value("${app.history.retention-days.advanced:365}") long advancedDays
+    ) {
+        this.userStore = userStore;
+        this.root = Paths.get(dir).toAbsolutePath().normalize();
+        this.segmentBytes = Math.max(segmentBytes, 4096L);
+        this.compactionMinutes = Math.max(compactionMinutes, 1L);
+        retentionDays.put("free", freeDays);
+        retentionDays.put("pro", proDays);
+        retentionDays.put("advanced", advancedDays);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(root);
+        compactor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "history-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(this::compactAll, compactionMinutes, compactionMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (compactor != null) {
+            compactor.shutdown();
+        }
+    }
+
+    public void append(String email, String input, List<String> blocks) {
+        String key = userKey(email);
+        ReentrantReadWriteLock lock = lockFor(key);
+        lock.writeLock().lock();
+        try {
+            Path dir = root.resolve(key);
+            if (Files.exists(dir.resolve(TOMBSTONE_FILE))) {
+                deleteDirectory(dir);
+            }
+            if (!Files.exists(dir.resolve(OWNER_FILE))) {
+                Files.createDirectories(dir);
+                Files.writeString(dir.resolve(OWNER_FILE), email, StandardCharsets.UTF_8);
+            }
+            long createdAt = nextTimestamp(key, dir);
+            Map<String, Object> record = new LinkedHashMap<>();
+            record.put("createdAt", createdAt);
+            record.put("input", input);
+            record.put("blocks", blocks);
+            byte[] payload = mapper.writeValueAsBytes(record);
+
+            List<Long> segments = segments(dir);
+            long segment = segments.isEmpty() ? 1L : segments.get(segments.size() - 1);
+            Path segmentLog = logPath(dir, segment);
+            if (Files.exists(segmentLog) && Files.size(segmentLog) + payload.length + 4 > segmentBytes) {
+                segment++;
+                segmentLog = logPath(dir, segment);
+            }
+            try (FileChannel logChannel = FileChannel.open(segmentLog, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                 FileChannel idxChannel = openIndexForAppend(idxPath(dir, segment))) {
+                long offset = logChannel.size();
+                writeFully(logChannel, ByteBuffer.allocate(4 + payload.length).putInt(payload.length).put(payload).flip());
+                writeFully(idxChannel, ByteBuffer.allocate(INDEX_ENTRY_BYTES).putLong(createdAt).putInt((int) offset).flip());
+            }
+        } catch (IOException ex) {
+            log.warn("Unable to append generation history for {}", email, ex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Page page(String email, String plan, long before, int limit) throws IOException {
+        String key = userKey(email);
+        Path dir = root.resolve(key);
+        long cutoff = cutoffFor(plan);
+        List<Map<String, Object>> items = new ArrayList<>();
+        ReentrantReadWriteLock lock = lockFor(key);
+        lock.readLock().lock();
+        try {
+            if (!Files.isDirectory(dir) || Files.exists(dir.resolve(TOMBSTONE_FILE))) {
+                return new Page(items, null);
+            }
+            List<Long> segments = segments(dir);
+            for (int s = segments.size() - 1; s >= 0 && items.size() < limit; s--) {
+                long segment = segments.get(s);
+                long[][] index = readIndex(idxPath(dir, segment));
+                if (index.length == 0 || index[0][0] >= before) {
+                    continue;
+                }
+                if (index[index.length - 1][0] < cutoff) {
+                    break;
+                }
+                try (FileChannel channel = FileChannel.open(logPath(dir, segment), StandardOpenOption.READ)) {
+                    for (int i = index.length - 1; i >= 0 && items.size() < limit; i--) {
+                        long createdAt = index[i][0];
+                        if (createdAt >= before) {
+                            continue;
+                        }
+                        if (createdAt < cutoff) {
+                            break;
+                        }
+                        items.add(readRecord(channel, index[i][1]));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        String nextCursor = null;
+        if (items.size() == limit) {
+            nextCursor = String.valueOf(((Number) items.get(items.size() - 1).get("createdAt")).longValue());
+        }
+        return new Page(items, nextCursor);
+    }
+
+    public void delete(String email) {
+        String key = userKey(email);
+        ReentrantReadWriteLock lock = lockFor(key);
+        lock.writeLock().lock();
+        try {
+            Path dir = root.resolve(key);
+            if (Files.isDirectory(dir)) {
+                Files.writeString(dir.resolve(TOMBSTONE_FILE), email, StandardCharsets.UTF_8);
+            }
+            lastTimestamps.remove(key);
+            deleteDirectory(dir);
+        } catch (IOException ex) {
+            log.warn("Unable to delete generation history for {}", email, ex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void rename(String oldEmail, String newEmail) {
+        String oldKey = userKey(oldEmail);
+        String newKey = userKey(newEmail);
+        ReentrantReadWriteLock first = lockFor(oldKey);
+        ReentrantReadWriteLock second = lockFor(newKey);
+        if (Math.floorMod(oldKey.hashCode(), LOCK_STRIPES) > Math.floorMod(newKey.hashCode(), LOCK_STRIPES)) {
+            ReentrantReadWriteLock swap = first;
+            first = second;
+            second = swap;
+        }
+        first.writeLock().lock();
+        second.writeLock().lock();
+        try {
+            Path source = root.resolve(oldKey);
+            if (!Files.isDirectory(source)) {
+                return;
+            }
+            Path target = root.resolve(newKey);
+            deleteDirectory(target);
+            Files.move(source, target);
+            Files.writeString(target.resolve(OWNER_FILE), newEmail, StandardCharsets.UTF_8);
+            lastTimestamps.remove(oldKey);
+            lastTimestamps.remove(newKey);
+        } catch (IOException ex) {
+            log.warn("Unable to move generation history from {} to {}", oldEmail, newEmail, ex);
+        } finally {
+            second.writeLock().unlock();
+            first.writeLock().unlock();
+        }
+    }
+
+    private void compactAll() {
+        long started = System.nanoTime();
+        int users = 0;
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path dir : dirs) {
+                compact(dir);
+                users++;
+            }
+            log.info("History compaction finished for {} users in {} ms", users, (System.nanoTime() - started) / 1_000_000L);
+        } catch (IOException | RuntimeException ex) {
+            log.error("History compaction failed", ex);
+        }
+    }
+
+    private void compact(Path dir) throws IOException {
+        String key = dir.getFileName().toString();
+        ReentrantReadWriteLock lock = lockFor(key);
+        lock.writeLock().lock();
+        try {
+            if (Files.exists(dir.resolve(TOMBSTONE_FILE))) {
+                deleteDirectory(dir);
+                return;
+            }
+            Path owner = dir.resolve(OWNER_FILE);
+            String email = Files.exists(owner) ? Files.readString(owner, StandardCharsets.UTF_8).trim() : "";
+            User user = userStore.findByEmail(email).orElse(null);
+            if (user == null) {
+                // A miss can be an email change between the store save and rename(); only delete() removes history.
+                return;
+            }
+            long cutoff = cutoffFor(Plans.normalize(user.plan));
+            List<Long> segments = segments(dir);
+            long target = -1L;
+            long targetSize = 0L;
+            for (int s = 0; s < segments.size(); s++) {
+                long segment = segments.get(s);
+                boolean active = s == segments.size() - 1;
+                long[][] index = readIndex(idxPath(dir, segment));
+                int firstKept = 0;
+                while (firstKept < index.length && index[firstKept][0] < cutoff) {
+                    firstKept++;
+                }
+                if (firstKept == index.length && !active) {
+                    Files.deleteIfExists(logPath(dir, segment));
+                    Files.deleteIfExists(idxPath(dir, segment));
+                    continue;
+                }
+                if (firstKept > 0) {
+                    rewrite(dir, segment, index, firstKept);
+                }
+                long size = Files.size(logPath(dir, segment));
+                if (target >= 0 && !active && targetSize + size <= segmentBytes) {
+                    merge(dir, segment, target);
+                    targetSize += size;
+                } else {
+                    target = segment;
+                    targetSize = size;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void rewrite(Path dir, long segment, long[][] index, int firstKept) throws IOException {
+        Path segmentLog = logPath(dir, segment);
+        Path tempLog = dir.resolve(segmentLog.getFileName() + ".tmp");
+        Path tempIdx = dir.resolve(idxPath(dir, segment).getFileName() + ".tmp");
+        try (FileChannel in = FileChannel.open(segmentLog, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(tempLog, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             FileChannel idx = FileChannel.open(tempIdx, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long base = firstKept < index.length ? index[firstKept][1] : in.size();
+            in.transferTo(base, in.size() - base, out);
+            ByteBuffer entries = ByteBuffer.allocate((index.length - firstKept) * INDEX_ENTRY_BYTES);
+            for (int i = firstKept; i < index.length; i++) {
+                entries.putLong(index[i][0]).putInt((int) (index[i][1] - base));
+            }
+            writeFully(idx, entries.flip());
+        }
+        move(tempLog, segmentLog);
+        move(tempIdx, idxPath(dir, segment));
+    }
+
+    private void merge(Path dir, long source, long target) throws IOException {
+        Path targetLog = logPath(dir, target);
+        try (FileChannel in = FileChannel.open(logPath(dir, source), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(targetLog, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+             FileChannel idx = openIndexForAppend(idxPath(dir, target))) {
+            long base = out.size();
+            long[][] index = readIndex(idxPath(dir, source));
+            ByteBuffer entries = ByteBuffer.allocate(index.length * INDEX_ENTRY_BYTES);
+            for (long[] entry : index) {
+                entries.putLong(entry[0]).putInt((int) (entry[1] + base));
+            }
+            in.transferTo(0, in.size(), out);
+            writeFully(idx, entries.flip());
+        }
+        Files.delete(logPath(dir, source));
+        Files.delete(idxPath(dir, source));
+    }
+
+    private long nextTimestamp(String key, Path dir) throws IOException {
+        Long last = lastTimestamps.get(key);
+        if (last == null) {
+            List<Long> segments = segments(dir);
+            long[][] index = segments.isEmpty() ? new long[0][] : readIndex(idxPath(dir, segments.get(segments.size() - 1)));
+            last = index.length == 0 ? 0L : index[index.length - 1][0];
+        }
+        long next = Math.max(System.currentTimeMillis(), last + 1L);
+        lastTimestamps.put(key, next);
+        return next;
+    }
+
+    private Map<String, Object> readRecord(FileChannel channel, long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4);
+        readFully(channel, header, offset);
+        ByteBuffer payload = ByteBuffer.allocate(header.flip().getInt());
+        readFully(channel, payload, offset + 4);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> record = mapper.readValue(payload.array(), Map.class);
+        return record;
+    }
+
+    private static FileChannel openIndexForAppend(Path idx) throws IOException {
+        FileChannel channel = FileChannel.open(idx, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        long size = channel.size();
+        if (size % INDEX_ENTRY_BYTES != 0) {
+            log.warn("Dropping a partial entry at the end of {}", idx);
+            channel.truncate(size - size % INDEX_ENTRY_BYTES);
+        }
+        return channel;
+    }
+
+    private static long[][] readIndex(Path idx) throws IOException {
+        if (!Files.exists(idx)) {
+            return new long[0][];
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(idx));
+        long[][] entries = new long[buffer.remaining() / INDEX_ENTRY_BYTES][];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = new long[] {buffer.getLong(), buffer.getInt()};
+        }
+        return entries;
+    }
+
+    private static List<Long> segments(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(path -> path.getFileName().toString())
+                .filter(name -> name.endsWith(".idx"))
+                .map(name -> Long.parseLong(name.substring(0, name.length() - 4)))
+                .sorted()
+                .toList();
+        }
+    }
+
+    private long cutoffFor(String plan) {
+        long days = retentionDays.getOrDefault(plan, retentionDays.get("free"));
+        return days <= 0 ? 0L : System.currentTimeMillis() - days * DAY_MS;
+    }
+
+    private ReentrantReadWriteLock lockFor(String key) {
+        return locks[Math.floorMod(key.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static Path logPath(Path dir, long segment) {
+        return dir.resolve(String.format("%08d.log", segment));
+    }
+
+    private static Path idxPath(Path dir, long segment) {
+        return dir.resolve(String.format("%08d.idx", segment));
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Truncated history record");
+            }
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void deleteDirectory(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static String userKey(String email) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                .digest(email.trim().toLowerCase().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    public record Page(List<Map<String, Object>> items, String nextCursor) {}
+}
@@ -1,5 +1,7 @@
 package com.ai.repurposer;
 
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -7,6 +9,12 @@ import java.util.Map;
 
 @RestController
 public class HealthController {
+    private final UserStore userStore;
+
+    public HealthController(UserStore userStore) {
+        this.userStore = userStore;
+    }
+
     @GetMapping("/")
     public Map<String, String> root() {
         return Map.of(
@@ -16,7 +24,10 @@ public class HealthController {
     }
 
     @GetMapping("/health")
-    public Map<String, String> health() {
-        return Map.of("status", "ok");
+    public ResponseEntity<Map<String, String>> health() {
+        if (!userStore.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("status", "starting"));
+        }
+        return ResponseEntity.ok(Map.of("status", "ok"));
     }
 }
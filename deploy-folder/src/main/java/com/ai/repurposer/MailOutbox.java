@@ -0,0 +1,400 @@
+package com.ai.repurposer;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Component
+@Lazy(false)
+public class MailOutbox {
+    private static final Logger log = LoggerFactory.getLogger(MailOutbox.class);
+    private static final long COMPACT_THRESHOLD_BYTES = 1024L * 1024L;
+    private static final long SENT_RETENTION_MS = 7L * 24L * 60L * 60L * 1000L;
+    private static final long MAX_BACKOFF_MS = 60L * 60L * 1000L;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ObjectProvider<JavaMailSender> mailSenderProvider;
+    private final boolean enabled;
+    private final String from;
+    private final Path logFile;
+    private final int batchSize;
+    private final int senders;
+    private final int maxAttempts;
+    private final long retryBaseMs;
+    private final ReentrantLock logLock = new ReentrantLock();
+    private final DelayQueue<Pending> queue = new DelayQueue<>();
+    private final Map<String, Message> pendingById = new ConcurrentHashMap<>();
+    private final Map<String, Long> sentAt = new ConcurrentHashMap<>();
+    private final Map<String, Retry> retries = new ConcurrentHashMap<>();
+    private final List<Thread> senderThreads = new ArrayList<>();
+    private FileChannel channel;
+    private volatile boolean running;
+
+    public MailOutbox(
+        ObjectProvider<JavaMailSender> mailSenderProvider,
+        @Value("${app.mail.enabled:false}") boolean enabled,
+        @Value("${app.mail.from:no-reply@repurposer.local}") String from,
+        @Value("${app.mail.outbox-dir:data/mail}") String outboxDir,
+        @Value("${app.mail.batch-size:50}") int batchSize,
+        @Value("${app.mail.senders:2}") int senders,
+        @Value("${app.mail.max-attempts:8}") int maxAttempts,
+        @Value("${app.mail.retry-base-seconds:5}") long retryBaseSeconds
+    ) {
+        this.mailSenderProvider = mailSenderProvider;
+        this.enabled = enabled;
+        this.from = from;
+        this.logFile = Paths.get(outboxDir).toAbsolutePath().normalize().resolve("outbox.log");
+        this.batchSize = Math.max(batchSize, 1);
+        this.senders = Math.max(senders, 1);
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.retryBaseMs = Math.max(retryBaseSeconds, 1L) * 1000L;
+    }
+
+    @PostConstruct
+    public void initialize() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        JavaMailSender mailSender = mailSenderProvider.getIfAvailable();
+        if (mailSender == null) {
+            log.warn("MAIL_ENABLED is set but no mail sender is configured (spring.mail.host); outbox disabled");
+            return;
+        }
+        Files.createDirectories(logFile.getParent());
+        replay();
+        compact();
+        running = true;
+        for (int i = 0; i < senders; i++) {
+            Thread sender = new Thread(() -> sendLoop(mailSender), "mail-outbox-" + (i + 1));
+            sender.setDaemon(true);
+            sender.start();
+            senderThreads.add(sender);
+        }
+        log.info("Mail outbox started with {} pending messages", pendingById.size());
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        running = false;
+        senderThreads.forEach(Thread::interrupt);
+        logLock.lock();
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    public void enqueue(String to, String subject, String body) {
+        enqueue(UUID.randomUUID().toString(), to, subject, body);
+    }
+
+    public void enqueue(String id, String to, String subject, String body) {
+        if (!running || to == null || to.isBlank()) {
+            return;
+        }
+        Message message = new Message(id, to, subject, body, System.currentTimeMillis());
+        logLock.lock();
+        try {
+            if (sentAt.containsKey(id) || pendingById.putIfAbsent(id, message) != null) {
+                return;
+            }
+            append(enqueueRecord(message, null), true);
+        } catch (IOException e) {
+            pendingById.remove(id, message);
+            log.error("Unable to persist outbound mail {}", id, e);
+            return;
+        } finally {
+            logLock.unlock();
+        }
+        queue.add(new Pending(message, 0, System.currentTimeMillis()));
+    }
+
+    private void sendLoop(JavaMailSender mailSender) {
+        while (running) {
+            List<Pending> batch = new ArrayList<>(batchSize);
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            sendBatch(mailSender, batch);
+            if (queue.isEmpty()) {
+                compactIfLarge();
+            }
+        }
+    }
+
+    private void sendBatch(JavaMailSender mailSender, List<Pending> batch) {
+        SimpleMailMessage[] messages = new SimpleMailMessage[batch.size()];
+        Map<SimpleMailMessage, Pending> byMessage = new IdentityHashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Message message = batch.get(i).message;
+            SimpleMailMessage mail = new SimpleMailMessage();
+            mail.setFrom(from);
+            mail.setTo(message.to);
+            mail.setSubject(message.subject);
+            mail.setText(message.body);
+            messages[i] = mail;
+            byMessage.put(mail, batch.get(i));
+        }
+
+        Map<Object, Exception> failures = Map.of();
+        try {
+            mailSender.send(messages);
+        } catch (MailSendException ex) {
+            failures = ex.getFailedMessages().isEmpty() ? allFailed(messages, ex) : ex.getFailedMessages();
+        } catch (MailException ex) {
+            failures = allFailed(messages, ex);
+        }
+
+        // One jitter draw per batch keeps failed messages together so they retry as a batch again.
+        double jitter = 1.0 + ThreadLocalRandom.current().nextDouble(0.25);
+        for (SimpleMailMessage mail : messages) {
+            Pending pending = byMessage.get(mail);
+            Exception failure = failures.get(mail);
+            if (failure == null) {
+                markDone(pending.message, "sent", null);
+            } else {
+                retryOrDrop(pending, failure, jitter);
+            }
+        }
+    }
+
+    private static Map<Object, Exception> allFailed(SimpleMailMessage[] messages, Exception ex) {
+        Map<Object, Exception> out = new HashMap<>();
+        for (SimpleMailMessage message : messages) {
+            out.put(message, ex);
+        }
+        return out;
+    }
+
+    private void retryOrDrop(Pending pending, Exception failure, double jitter) {
+        int attempts = pending.attempts + 1;
+        if (attempts >= maxAttempts) {
+            log.warn("Giving up on mail {} to {} after {} attempts: {}", pending.message.id, pending.message.to, attempts, failure.getMessage());
+            markDone(pending.message, "dead", failure.getMessage());
+            return;
+        }
+        long backoff = Math.min(retryBaseMs << Math.min(attempts - 1, 20), MAX_BACKOFF_MS);
+        long dueAt = System.currentTimeMillis() + (long) (backoff * jitter);
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("op", "retry");
+        record.put("id", pending.message.id);
+        record.put("attempts", attempts);
+        record.put("due", dueAt);
+        logLock.lock();
+        try {
+            append(record, false);
+            retries.put(pending.message.id, new Retry(attempts, dueAt));
+        } catch (IOException e) {
+            log.error("Unable to record retry of mail {}", pending.message.id, e);
+        } finally {
+            logLock.unlock();
+        }
+        queue.add(new Pending(pending.message, attempts, dueAt));
+    }
+
+    private void markDone(Message message, String op, String error) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("op", op);
+        record.put("id", message.id);
+        record.put("at", System.currentTimeMillis());
+        if (error != null) {
+            record.put("error", error);
+        }
+        logLock.lock();
+        try {
+            append(record, false);
+        } catch (IOException e) {
+            log.error("Unable to record mail {} as {}", message.id, op, e);
+        } finally {
+            pendingById.remove(message.id);
+            retries.remove(message.id);
+            sentAt.put(message.id, System.currentTimeMillis());
+            logLock.unlock();
+        }
+    }
+
+    private void append(Map<String, Object> record, boolean sync) throws IOException {
+        byte[] line = (mapper.writeValueAsString(record) + "\n").getBytes(StandardCharsets.UTF_8);
+        logLock.lock();
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(line);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (sync) {
+                channel.force(false);
+            }
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    private void replay() throws IOException {
+        if (!Files.exists(logFile)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(logFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                Map<String, Object> record;
+                try {
+                    record = mapper.readValue(line, new TypeReference<Map<String, Object>>() {});
+                } catch (IOException ex) {
+                    log.warn("Skipping unreadable outbox record");
+                    continue;
+                }
+                String id = String.valueOf(record.get("id"));
+                long at = record.get("at") instanceof Number n ? n.longValue() : System.currentTimeMillis();
+                Object op = record.get("op");
+                if ("enqueue".equals(op)) {
+                    pendingById.put(id, new Message(id, (String) record.get("to"), (String) record.get("subject"),
+                        (String) record.get("body"), at));
+                    if (record.get("attempts") instanceof Number attempts) {
+                        retries.put(id, new Retry(attempts.intValue(), record.get("due") instanceof Number due ? due.longValue() : 0L));
+                    }
+                } else if ("retry".equals(op)) {
+                    if (pendingById.containsKey(id) && record.get("attempts") instanceof Number attempts) {
+                        retries.put(id, new Retry(attempts.intValue(), record.get("due") instanceof Number due ? due.longValue() : 0L));
+                    }
+                } else {
+                    pendingById.remove(id);
+                    retries.remove(id);
+                    sentAt.put(id, at);
+                }
+            }
+        }
+        long now = System.currentTimeMillis();
+        for (Message message : pendingById.values()) {
+            Retry retry = retries.get(message.id);
+            queue.add(retry == null ? new Pending(message, 0, now) : new Pending(message, retry.attempts, Math.max(retry.dueAt, now)));
+        }
+    }
+
+    private void compactIfLarge() {
+        try {
+            if (Files.size(logFile) > COMPACT_THRESHOLD_BYTES) {
+                compact();
+            }
+        } catch (IOException e) {
+            log.error("Unable to compact mail outbox", e);
+        }
+    }
+
+    private void compact() throws IOException {
+        logLock.lock();
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+            long cutoff = System.currentTimeMillis() - SENT_RETENTION_MS;
+            sentAt.values().removeIf(at -> at < cutoff);
+            Path temp = logFile.resolveSibling(logFile.getFileName() + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, Long> sent : sentAt.entrySet()) {
+                    writer.write(mapper.writeValueAsString(Map.of("op", "sent", "id", sent.getKey(), "at", sent.getValue())));
+                    writer.newLine();
+                }
+                for (Message message : pendingById.values()) {
+                    writer.write(mapper.writeValueAsString(enqueueRecord(message, retries.get(message.id))));
+                    writer.newLine();
+                }
+            }
+            try {
+                Files.move(temp, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp, logFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    private static Map<String, Object> enqueueRecord(Message message, Retry retry) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("op", "enqueue");
+        record.put("id", message.id);
+        record.put("to", message.to);
+        record.put("subject", message.subject);
+        record.put("body", message.body);
+        record.put("at", message.createdAt);
+        if (retry != null) {
+            record.put("attempts", retry.attempts);
+            record.put("due", retry.dueAt);
+        }
+        return record;
+    }
+
+    private record Message(String id, String to, String subject, String body, long createdAt) {}
+
+    private record Retry(int attempts, long dueAt) {}
+
+    private static final class Pending implements Delayed {
+        final Message message;
+        final int attempts;
+        final long dueAtMillis;
+
+        Pending(Message message, int attempts, long dueAtMillis) {
+            this.message = message;
+            this.attempts = attempts;
+            this.dueAtMillis = dueAtMillis;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.ai.repurposer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Component
+@Lazy(false)
+public class PlanExpiryReminders {
+    private static final Logger log = LoggerFactory.getLogger(PlanExpiryReminders.class);
+
+    private final UserStore userStore;
+    private final MailOutbox mailOutbox;
+    private final boolean enabled;
+    private final long reminderDays;
+    private ScheduledExecutorService scheduler;
+
+    public PlanExpiryReminders(
+        UserStore userStore,
+        MailOutbox mailOutbox,
+        @Value("${app.mail.enabled:false}") boolean enabled,
+        @Value("${app.mail.expiry-reminder-days:3}") long reminderDays
+    ) {
+        this.userStore = userStore;
+        this.mailOutbox = mailOutbox;
+        this.enabled = enabled;
+        this.reminderDays = Math.max(reminderDays, 0L);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "plan-expiry-reminders");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::scan, 1L, 60L, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    private void scan() {
+        try {
+            long today = LocalDate.now().toEpochDay();
+            for (User user : userStore.loadUsers()) {
+                if (user.planExpiresAtEpochDay == null || user.email == null) {
+                    continue;
+                }
+                long remaining = user.planExpiresAtEpochDay - today;
+                if (remaining < 0 || remaining > reminderDays) {
+                    continue;
+                }
+                String email = user.email.trim().toLowerCase();
+                mailOutbox.enqueue(
+                    "expiry:" + email + ":" + user.planExpiresAtEpochDay,
+                    email,
+                    "Your Repurposer plan expires soon",
+                    "Your " + user.plan + " plan expires on " + LocalDate.ofEpochDay(user.planExpiresAtEpochDay)
+                        + ". Renew before then to keep unlimited generations."
+                );
+            }
+        } catch (RuntimeException ex) {
+            log.error("Plan expiry reminder scan failed", ex);
+        }
+    }
+}
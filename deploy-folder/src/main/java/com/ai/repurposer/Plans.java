@@ -0,0 +1,27 @@
+package com.ai.repurposer;
+
+import java.time.LocalDate;
+
+public final class Plans {
+    private Plans() {
+    }
+
+    public static String normalize(String plan) {
+        String normalized = plan == null ? "free" : plan.trim().toLowerCase();
+        if ("advanced".equals(normalized) || "agency".equals(normalized)) {
+            return "advanced";
+        }
+        if ("pro".equals(normalized) || "premium".equals(normalized)) {
+            return "pro";
+        }
+        return "free";
+    }
+
+    public static Long expiryEpochDay(String plan, String cycle) {
+        if ("free".equals(plan)) {
+            return null;
+        }
+        long days = "yearly".equals(cycle) ? 365 : 30;
+        return LocalDate.now().plusDays(days).toEpochDay();
+    }
+}
@@ -2,12 +2,15 @@ package com.ai.repurposer;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 
 @SpringBootApplication
 public class RepurposerApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(RepurposerApplication.class, args);
+		SpringApplication app = new SpringApplication(RepurposerApplication.class);
+		app.setApplicationStartup(new BufferingApplicationStartup(StartupReport.BUFFER_CAPACITY));
+		app.run(args);
 	}
 
 }
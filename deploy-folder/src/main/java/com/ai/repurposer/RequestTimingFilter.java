@@ -0,0 +1,143 @@
+package com.ai.repurposer;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+@Component
+public class RequestTimingFilter extends OncePerRequestFilter {
+    private final boolean enabled;
+    private final SlowRequestLog slowRequestLog;
+
+    public RequestTimingFilter(
+        @Value("${app.timing.enabled:false}") boolean enabled,
+        SlowRequestLog slowRequestLog
+    ) {
+        this.enabled = enabled;
+        this.slowRequestLog = slowRequestLog;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+        throws ServletException, IOException {
+        RequestTimings timings = new RequestTimings();
+        request.setAttribute(RequestTimings.ATTRIBUTE, timings);
+        TimingResponse timedResponse = new TimingResponse(response, timings);
+        try {
+            chain.doFilter(request, timedResponse);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new CompletionListener(request, response, timings));
+            } else {
+                timedResponse.stamp();
+                complete(request, response, timings);
+            }
+        }
+    }
+
+    private void complete(HttpServletRequest request, HttpServletResponse response, RequestTimings timings) {
+        timings.finish();
+        slowRequestLog.submit(request.getMethod(), request.getRequestURI(), response.getStatus(), timings);
+    }
+
+    private final class CompletionListener implements AsyncListener {
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        private final RequestTimings timings;
+
+        CompletionListener(HttpServletRequest request, HttpServletResponse response, RequestTimings timings) {
+            this.request = request;
+            this.response = response;
+            this.timings = timings;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            complete(request, response, timings);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+    private static final class TimingResponse extends HttpServletResponseWrapper {
+        private final RequestTimings timings;
+        private boolean stamped;
+
+        TimingResponse(HttpServletResponse response, RequestTimings timings) {
+            super(response);
+            this.timings = timings;
+        }
+
+        void stamp() {
+            if (stamped) {
+                return;
+            }
+            stamped = true;
+            if (!isCommitted()) {
+                setHeader("Server-Timing", timings.toServerTiming());
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            stamp();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            stamp();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            stamp();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            stamp();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            stamp();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            stamp();
+            super.sendRedirect(location);
+        }
+    }
+}
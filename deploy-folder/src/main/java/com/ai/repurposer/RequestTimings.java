@@ -0,0 +1,96 @@
+package com.ai.repurposer;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+public class RequestTimings {
+    static final String ATTRIBUTE = RequestTimings.class.getName();
+
+    private static final RequestTimings DISABLED = new RequestTimings(false);
+
+    private final boolean enabled;
+    private final long startedNanos;
+    private String[] names = new String[8];
+    private long[] durations = new long[8];
+    private int count;
+    private long finishedNanos;
+
+    RequestTimings() {
+        this(true);
+    }
+
+    private RequestTimings(boolean enabled) {
+        this.enabled = enabled;
+        this.startedNanos = enabled ? System.nanoTime() : 0L;
+    }
+
+    public static RequestTimings of(HttpServletRequest request) {
+        Object attribute = request.getAttribute(ATTRIBUTE);
+        return attribute instanceof RequestTimings timings ? timings : DISABLED;
+    }
+
+    public long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    public void record(String phase, long phaseStartedNanos) {
+        if (!enabled) {
+            return;
+        }
+        long elapsed = System.nanoTime() - phaseStartedNanos;
+        for (int i = 0; i < count; i++) {
+            if (names[i].equals(phase)) {
+                durations[i] += elapsed;
+                return;
+            }
+        }
+        if (count == names.length) {
+            names = Arrays.copyOf(names, count * 2);
+            durations = Arrays.copyOf(durations, count * 2);
+        }
+        names[count] = phase;
+        durations[count] = elapsed;
+        count++;
+    }
+
+    void finish() {
+        if (finishedNanos == 0L) {
+            finishedNanos = System.nanoTime();
+        }
+    }
+
+    long totalNanos() {
+        return (finishedNanos == 0L ? System.nanoTime() : finishedNanos) - startedNanos;
+    }
+
+    String toServerTiming() {
+        StringBuilder out = new StringBuilder(32 + count * 24);
+        for (int i = 0; i < count; i++) {
+            appendMetric(out, names[i], durations[i]);
+            out.append(", ");
+        }
+        appendMetric(out, "app", totalNanos());
+        return out.toString();
+    }
+
+    String describePhases() {
+        StringBuilder out = new StringBuilder(count * 24);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                out.append(' ');
+            }
+            out.append(names[i]).append('=').append(formatMillis(durations[i])).append("ms");
+        }
+        return out.toString();
+    }
+
+    private static void appendMetric(StringBuilder out, String name, long nanos) {
+        out.append(name).append(";dur=").append(formatMillis(nanos));
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+}
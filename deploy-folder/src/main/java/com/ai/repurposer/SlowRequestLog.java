@@ -0,0 +1,80 @@
+package com.ai.repurposer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class SlowRequestLog {
+    private static final Logger log = LoggerFactory.getLogger(SlowRequestLog.class);
+
+    private final boolean enabled;
+    private final long thresholdNanos;
+    private final BlockingQueue<Entry> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private Thread writer;
+
+    public SlowRequestLog(
+        @Value("${app.timing.enabled:false}") boolean enabled,
+        @Value("${app.timing.slow-request-ms:2000}") long thresholdMs,
+        @Value("${app.timing.slow-log-capacity:1024}") int capacity
+    ) {
+        this.enabled = enabled;
+        this.thresholdNanos = Math.max(thresholdMs, 0L) * 1_000_000L;
+        this.queue = new ArrayBlockingQueue<>(Math.max(capacity, 1));
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        writer = new Thread(this::drain, "slow-request-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (writer != null) {
+            writer.interrupt();
+        }
+    }
+
+    void submit(String method, String path, int status, RequestTimings timings) {
+        if (!enabled || timings.totalNanos() < thresholdNanos) {
+            return;
+        }
+        if (!queue.offer(new Entry(method, path, status, timings))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void drain() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Entry entry;
+            try {
+                entry = queue.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long droppedSoFar = dropped.getAndSet(0);
+            if (droppedSoFar > 0) {
+                log.warn("Slow request log queue full, dropped {} entries", droppedSoFar);
+            }
+            log.warn("Slow request {} {} status={} total={}ms {}",
+                entry.method, entry.path, entry.status,
+                entry.timings.totalNanos() / 1_000_000L, entry.timings.describePhases());
+        }
+    }
+
+    private record Entry(String method, String path, int status, RequestTimings timings) {}
+}
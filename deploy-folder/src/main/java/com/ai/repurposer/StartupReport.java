@@ -0,0 +1,75 @@
+package com.ai.repurposer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class StartupReport {
+    static final int BUFFER_CAPACITY = 8192;
+
+    private static final Logger log = LoggerFactory.getLogger(StartupReport.class);
+
+    private final int topBeans;
+
+    public StartupReport(@Value("${app.startup.report-top-beans:10}") int topBeans) {
+        this.topBeans = Math.max(topBeans, 0);
+    }
+
+    @EventListener
+    public void onReady(ApplicationReadyEvent event) {
+        long jvmStartToReady = ManagementFactory.getRuntimeMXBean().getUptime();
+        StringBuilder out = new StringBuilder();
+        out.append("Startup timing: jvm-to-ready=").append(jvmStartToReady).append("ms");
+        out.append(" spring-run=").append(event.getTimeTaken().toMillis()).append("ms");
+
+        ApplicationStartup startup = event.getApplicationContext().getApplicationStartup();
+        if (startup instanceof BufferingApplicationStartup buffering) {
+            List<StartupTimeline.TimelineEvent> events = buffering.drainBufferedTimeline().getEvents();
+            appendPhases(out, events);
+            appendSlowestBeans(out, events);
+        }
+        log.info(out.toString());
+    }
+
+    private static void appendPhases(StringBuilder out, List<StartupTimeline.TimelineEvent> events) {
+        Map<String, Long> phases = new LinkedHashMap<>();
+        for (StartupTimeline.TimelineEvent event : events) {
+            if (event.getStartupStep().getParentId() == null) {
+                phases.merge(event.getStartupStep().getName(), event.getDuration().toMillis(), Long::sum);
+            }
+        }
+        phases.forEach((name, millis) -> out.append("\n  phase ").append(name).append(": ").append(millis).append("ms"));
+    }
+
+    private void appendSlowestBeans(StringBuilder out, List<StartupTimeline.TimelineEvent> events) {
+        events.stream()
+            .filter(e -> "spring.beans.instantiate".equals(e.getStartupStep().getName()))
+            .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+            .limit(topBeans)
+            .forEach(e -> out.append("\n  bean ").append(beanName(e.getStartupStep()))
+                .append(": ").append(e.getDuration().toMillis()).append("ms"));
+    }
+
+    private static String beanName(StartupStep step) {
+        for (StartupStep.Tag tag : step.getTags()) {
+            if ("beanName".equals(tag.getKey())) {
+                return tag.getValue();
+            }
+        }
+        return "?";
+    }
+}
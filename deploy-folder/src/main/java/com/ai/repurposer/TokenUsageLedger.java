@@ -0,0 +1,240 @@
+package com.ai.repurposer;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Component
+public class TokenUsageLedger {
+    private static final Logger log = LoggerFactory.getLogger(TokenUsageLedger.class);
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, Usage> usageByEmail = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicInteger pendingRecords = new AtomicInteger();
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private final Path usageFile;
+    private final long flushSeconds;
+    private final int flushBatch;
+    private final long completionEstimate;
+    private final Map<String, long[]> budgets = new HashMap<>();
+    private ScheduledExecutorService flusher;
+
+    public TokenUsageLedger(
+        @Value("${app.token-usage.file:data/token-usage.json}") String usageFilePath,
+        @Value("${app.token-usage.flush-seconds:30}") long flushSeconds,
+        @Value("${app.token-usage.flush-batch:500}") int flushBatch,
+        @Value("${app.token-budget.completion-estimate:800}") long completionEstimate,
+        @Value("${app.token-budget.free.daily:20000}") long freeDaily,
+        @Value("${app.token-budget.free.monthly:200000}") long freeMonthly,
+        @Value("${app.token-budget.pro.daily:200000}") long proDaily,
+        @Value("${app.token-budget.pro.monthly:3000000}") long proMonthly,
+        @Value("${app.token-budget.advanced.daily:1000000}") long advancedDaily,
+        @Value("${app.token-budget.advanced.monthly:20000000}") long advancedMonthly
+    ) {
+        this.usageFile = Paths.get(usageFilePath).toAbsolutePath().normalize();
+        this.flushSeconds = Math.max(flushSeconds, 1L);
+        this.flushBatch = Math.max(flushBatch, 1);
+        this.completionEstimate = Math.max(completionEstimate, 0L);
+        budgets.put("free", new long[] {freeDaily, freeMonthly});
+        budgets.put("pro", new long[] {proDaily, proMonthly});
+        budgets.put("advanced", new long[] {advancedDaily, advancedMonthly});
+    }
+
+    @PostConstruct
+    public void initialize() {
+        load();
+        flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "token-usage-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushSeconds, flushSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        flush();
+    }
+
+    public long estimateTokens(String prompt) {
+        return (prompt.length() + 3L) / 4L + completionEstimate;
+    }
+
+    public Optional<String> reserve(String email, String plan, long estimatedTokens) {
+        long[] limits = budgets.getOrDefault(plan, budgets.get("free"));
+        String[] rejection = new String[1];
+        usageByEmail.compute(email, (key, existing) -> {
+            Usage usage = current(existing);
+            if (limits[0] > 0 && usage.dailyTokens + usage.reservedTokens + estimatedTokens > limits[0]) {
+                rejection[0] = "Daily token budget reached.";
+                return existing;
+            }
+            if (limits[1] > 0 && usage.monthlyTokens + usage.reservedTokens + estimatedTokens > limits[1]) {
+                rejection[0] = "Monthly token budget reached.";
+                return existing;
+            }
+            return usage.reserve(estimatedTokens);
+        });
+        return Optional.ofNullable(rejection[0]);
+    }
+
+    public void settle(String email, long reservedTokens, long promptTokens, long completionTokens) {
+        usageByEmail.compute(email, (key, usage) -> current(usage).reserve(-reservedTokens).add(promptTokens, completionTokens));
+        recorded();
+    }
+
+    public void release(String email, long reservedTokens) {
+        usageByEmail.computeIfPresent(email, (key, usage) -> usage.reserve(-reservedTokens));
+    }
+
+    public void rename(String email, String newEmail) {
+        Usage moved = usageByEmail.remove(email);
+        if (moved != null) {
+            usageByEmail.merge(newEmail, moved, (existing, incoming) -> current(existing).merge(current(incoming)));
+            recorded();
+        }
+    }
+
+    public List<Map<String, Object>> topConsumers(String period, int limit) {
+        Comparator<Map.Entry<String, Usage>> order = switch (period) {
+            case "month" -> Comparator.comparingLong(e -> current(e.getValue()).monthlyTokens);
+            case "total" -> Comparator.comparingLong(e -> e.getValue().totalTokens);
+            default -> Comparator.comparingLong(e -> current(e.getValue()).dailyTokens);
+        };
+        return usageByEmail.entrySet().stream()
+            .sorted(order.reversed())
+            .limit(Math.max(limit, 1))
+            .map(e -> {
+                Usage usage = current(e.getValue());
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("email", e.getKey());
+                item.put("dailyTokens", usage.dailyTokens);
+                item.put("monthlyTokens", usage.monthlyTokens);
+                item.put("totalTokens", usage.totalTokens);
+                item.put("promptTokens", usage.promptTokens);
+                item.put("completionTokens", usage.completionTokens);
+                item.put("requests", usage.requests);
+                return item;
+            })
+            .toList();
+    }
+
+    void flush() {
+        flushLock.lock();
+        try {
+            flushQueued.set(false);
+            if (pendingRecords.getAndSet(0) == 0) {
+                return;
+            }
+            Files.createDirectories(usageFile.getParent());
+            Path temp = usageFile.resolveSibling(usageFile.getFileName() + ".tmp");
+            mapper.writeValue(temp.toFile(), new HashMap<>(usageByEmail));
+            try {
+                Files.move(temp, usageFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp, usageFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            log.error("Unable to persist token usage", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void recorded() {
+        if (pendingRecords.incrementAndGet() >= flushBatch && flushQueued.compareAndSet(false, true)) {
+            flusher.execute(this::flush);
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(usageFile)) {
+            return;
+        }
+        try {
+            Map<String, Usage> stored = mapper.readValue(usageFile.toFile(), new TypeReference<Map<String, Usage>>() {});
+            usageByEmail.putAll(stored);
+        } catch (IOException e) {
+            log.error("Unable to read token usage, starting from zero", e);
+        }
+    }
+
+    private static Usage current(Usage usage) {
+        long today = LocalDate.now().toEpochDay();
+        long month = monthIndex(LocalDate.now());
+        if (usage == null) {
+            return new Usage(today, month, 0, 0, 0, 0, 0, 0, 0);
+        }
+        if (usage.day == today && usage.month == month) {
+            return usage;
+        }
+        return new Usage(today, month,
+            usage.day == today ? usage.dailyTokens : 0,
+            usage.month == month ? usage.monthlyTokens : 0,
+            usage.totalTokens, usage.promptTokens, usage.completionTokens, usage.requests, usage.reservedTokens);
+    }
+
+    private static long monthIndex(LocalDate date) {
+        return date.getYear() * 12L + date.getMonthValue() - 1;
+    }
+
+    public record Usage(
+        long day,
+        long month,
+        long dailyTokens,
+        long monthlyTokens,
+        long totalTokens,
+        long promptTokens,
+        long completionTokens,
+        long requests,
+        @JsonIgnore long reservedTokens
+    ) {
+        Usage add(long prompt, long completion) {
+            long tokens = prompt + completion;
+            return new Usage(day, month, dailyTokens + tokens, monthlyTokens + tokens,
+                totalTokens + tokens, promptTokens + prompt, completionTokens + completion, requests + 1, reservedTokens);
+        }
+
+        Usage reserve(long tokens) {
+            return new Usage(day, month, dailyTokens, monthlyTokens,
+                totalTokens, promptTokens, completionTokens, requests, Math.max(reservedTokens + tokens, 0L));
+        }
+
+        Usage merge(Usage other) {
+            return new Usage(day, month, dailyTokens + other.dailyTokens, monthlyTokens + other.monthlyTokens,
+                totalTokens + other.totalTokens, promptTokens + other.promptTokens,
+                completionTokens + other.completionTokens, requests + other.requests, reservedTokens + other.reservedTokens);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.ai.repurposer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class TrafficCapture {
+    private static final Logger log = LoggerFactory.getLogger(TrafficCapture.class);
+    private static final Set<String> CAPTURED_PATHS = Set.of("/generate", "/login", "/signup", "/logout");
+    private static final String USER_ATTRIBUTE = TrafficCapture.class.getName() + ".user";
+    private static final String PLAN_ATTRIBUTE = TrafficCapture.class.getName() + ".plan";
+    private static final String INPUT_ATTRIBUTE = TrafficCapture.class.getName() + ".input";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final AtomicLong dropped = new AtomicLong();
+    private final boolean enabled;
+    private final Path captureFile;
+    private final int batchSize;
+    private final long flushMillis;
+    private final byte[] salt;
+    private final BlockingQueue<Capture> queue;
+    private Thread writer;
+
+    public TrafficCapture(
+        @Value("${app.capture.enabled:false}") boolean enabled,
+        @Value("${app.capture.file:requests.jsonl}") String captureFilePath,
+        @Value("${app.capture.queue-capacity:8192}") int queueCapacity,
+        @Value("${app.capture.batch-size:256}") int batchSize,
+        @Value("${app.capture.flush-ms:1000}") long flushMillis,
+        @Value("${app.capture.salt:}") String salt
+    ) {
+        this.enabled = enabled;
+        this.captureFile = Paths.get(captureFilePath).toAbsolutePath().normalize();
+        this.batchSize = Math.max(batchSize, 1);
+        this.flushMillis = Math.max(flushMillis, 10L);
+        this.queue = new ArrayBlockingQueue<>(Math.max(queueCapacity, 1));
+        if (salt == null || salt.isBlank()) {
+            this.salt = new byte[16];
+            new SecureRandom().nextBytes(this.salt);
+        } else {
+            this.salt = salt.trim().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        writer = new Thread(this::drain, "traffic-capture");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Capturing /generate and auth traffic to {}", captureFile);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer != null) {
+            writer.interrupt();
+            writer.join(flushMillis * 2);
+        }
+    }
+
+    public void noteUser(HttpServletRequest request, String email, String plan) {
+        if (!enabled || email == null || email.isBlank()) {
+            return;
+        }
+        request.setAttribute(USER_ATTRIBUTE, hash(email.trim().toLowerCase()));
+        if (plan != null) {
+            request.setAttribute(PLAN_ATTRIBUTE, plan);
+        }
+    }
+
+    public void noteInput(HttpServletRequest request, String input) {
+        if (!enabled || input == null) {
+            return;
+        }
+        String kind = input.startsWith("http://") || input.startsWith("https://") ? "url" : "idea";
+        request.setAttribute(INPUT_ATTRIBUTE, new Input(input.length(), kind, hash(input)));
+    }
+
+    boolean captures(HttpServletRequest request) {
+        return enabled && CAPTURED_PATHS.contains(request.getRequestURI());
+    }
+
+    void record(HttpServletRequest request, int status, long startedMillis, long durationNanos) {
+        Capture capture = new Capture(
+            startedMillis,
+            request.getMethod(),
+            request.getRequestURI(),
+            status,
+            durationNanos / 1_000_000L,
+            (String) request.getAttribute(USER_ATTRIBUTE),
+            (String) request.getAttribute(PLAN_ATTRIBUTE),
+            hash(extractClientIp(request)),
+            (Input) request.getAttribute(INPUT_ATTRIBUTE)
+        );
+        if (!queue.offer(capture)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void drain() {
+        List<Capture> batch = new ArrayList<>(batchSize);
+        try (BufferedWriter out = Files.newBufferedWriter(captureFile, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (true) {
+                boolean interrupted = false;
+                try {
+                    Capture first = queue.poll(flushMillis, TimeUnit.MILLISECONDS);
+                    if (first != null) {
+                        batch.add(first);
+                    }
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+                queue.drainTo(batch, interrupted ? Integer.MAX_VALUE : batchSize - batch.size());
+                for (Capture capture : batch) {
+                    out.write(mapper.writeValueAsString(capture.describe()));
+                    out.newLine();
+                }
+                if (!batch.isEmpty()) {
+                    out.flush();
+                    batch.clear();
+                }
+                long droppedSoFar = dropped.getAndSet(0);
+                if (droppedSoFar > 0) {
+                    log.warn("Traffic capture queue full, dropped {} entries", droppedSoFar);
+                }
+                if (interrupted) {
+                    return;
+                }
+            }
+        } catch (IOException ex) {
+            log.error("Traffic capture stopped: unable to write {}", captureFile, ex);
+        }
+    }
+
+    private String hash(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(salt);
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)), 0, 8);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String extractClientIp(HttpServletRequest request) {
+        String forwarded = request.getHeader("X-Forwarded-For");
+        if (forwarded != null && !forwarded.isBlank()) {
+            String first = forwarded.split(",")[0].trim();
+            if (!first.isBlank()) {
+                return first;
+            }
+        }
+        String remoteAddr = request.getRemoteAddr();
+        return (remoteAddr == null || remoteAddr.isBlank()) ? "unknown" : remoteAddr;
+    }
+
+    private record Input(int chars, String kind, String hash) {}
+
+    private record Capture(
+        long ts,
+        String method,
+        String path,
+        int status,
+        long durationMs,
+        String user,
+        String plan,
+        String client,
+        Input input
+    ) {
+        Map<String, Object> describe() {
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("ts", ts);
+            out.put("method", method);
+            out.put("path", path);
+            out.put("status", status);
+            out.put("durationMs", durationMs);
+            if (user != null) {
+                out.put("user", user);
+            }
+            if (plan != null) {
+                out.put("plan", plan);
+            }
+            out.put("client", client);
+            if (input != null) {
+                out.put("inputChars", input.chars);
+                out.put("inputKind", input.kind);
+                out.put("inputHash", input.hash);
+            }
+            return out;
+        }
+    }
+}
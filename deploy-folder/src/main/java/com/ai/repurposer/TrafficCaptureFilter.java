@@ -0,0 +1,73 @@
+package com.ai.repurposer;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+@Component
+public class TrafficCaptureFilter extends OncePerRequestFilter {
+    private final TrafficCapture trafficCapture;
+
+    public TrafficCaptureFilter(TrafficCapture trafficCapture) {
+        this.trafficCapture = trafficCapture;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !trafficCapture.captures(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+        throws ServletException, IOException {
+        long startedMillis = System.currentTimeMillis();
+        long started = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new CompletionListener(request, response, startedMillis, started));
+            } else {
+                trafficCapture.record(request, response.getStatus(), startedMillis, System.nanoTime() - started);
+            }
+        }
+    }
+
+    private final class CompletionListener implements AsyncListener {
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        private final long startedMillis;
+        private final long started;
+
+        CompletionListener(HttpServletRequest request, HttpServletResponse response, long startedMillis, long started) {
+            this.request = request;
+            this.response = response;
+            this.startedMillis = startedMillis;
+            this.started = started;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            trafficCapture.record(request, response.getStatus(), startedMillis, System.nanoTime() - started);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.ai.repurposer;
+
+public class UpstreamBusyException extends RuntimeException {
+    public UpstreamBusyException(String message) {
+        super(message);
+    }
+}
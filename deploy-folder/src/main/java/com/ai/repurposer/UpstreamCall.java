@@ -0,0 +1,83 @@
+package com.ai.repurposer;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class UpstreamCall {
+    public enum CancelReason { DEADLINE, CLIENT_DISCONNECT }
+
+    private final long deadlineNanos;
+    private final AtomicReference<CancelReason> cancelReason = new AtomicReference<>();
+    private volatile HttpURLConnection connection;
+    private volatile UpstreamPool.Lease lease;
+    private volatile boolean completed;
+    private volatile boolean dispatched;
+
+    UpstreamCall(long timeoutMillis) {
+        this.deadlineNanos = System.nanoTime() + timeoutMillis * 1_000_000L;
+    }
+
+    public long remainingMillis() {
+        return Math.max((deadlineNanos - System.nanoTime()) / 1_000_000L, 0L);
+    }
+
+    public boolean isCancelled() {
+        return cancelReason.get() != null;
+    }
+
+    CancelReason cancelReason() {
+        return cancelReason.get();
+    }
+
+    public boolean wasDispatched() {
+        return dispatched;
+    }
+
+    UpstreamPool.Lease inFlightLease() {
+        return connection == null ? null : lease;
+    }
+
+    void attach(UpstreamPool.Lease lease, HttpURLConnection connection) throws CancelledException {
+        this.lease = lease;
+        this.connection = connection;
+        if (isCancelled()) {
+            connection.disconnect();
+            throw new CancelledException(cancelReason.get());
+        }
+        dispatched = true;
+    }
+
+    void complete() {
+        completed = true;
+    }
+
+    void detach() {
+        connection = null;
+        lease = null;
+    }
+
+    boolean cancel(CancelReason reason) {
+        if (completed || !cancelReason.compareAndSet(null, reason)) {
+            return false;
+        }
+        HttpURLConnection active = connection;
+        if (active != null) {
+            active.disconnect();
+        }
+        return true;
+    }
+
+    public static class CancelledException extends IOException {
+        private final CancelReason reason;
+
+        CancelledException(CancelReason reason) {
+            super("Upstream call cancelled: " + reason);
+            this.reason = reason;
+        }
+
+        public CancelReason reason() {
+            return reason;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.ai.repurposer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class UpstreamClient {
+    private static final long PERMIT_WAIT_SLICE_MILLIS = 100L;
+
+    private final UpstreamPool pool;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final int maxAttempts;
+    private final long maxTimeoutMillis;
+    private final AtomicLong cancelledOnDeadline = new AtomicLong();
+    private final AtomicLong cancelledOnDisconnect = new AtomicLong();
+    private final AtomicLong skippedBeforeDispatch = new AtomicLong();
+    private final AtomicLong savedUpstreamNanos = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final Semaphore permits;
+    private final int maxInFlight;
+
+    public UpstreamClient(
+        UpstreamPool pool,
+        @Value("${app.upstream.max-attempts:2}") int maxAttempts,
+        @Value("${app.generate.max-deadline-ms:45000}") long maxTimeoutMillis,
+        @Value("${app.upstream.max-in-flight:256}") int maxInFlight
+    ) {
+        this.pool = pool;
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.maxTimeoutMillis = Math.max(maxTimeoutMillis, 1L);
+        this.maxInFlight = Math.max(maxInFlight, 1);
+        this.permits = new Semaphore(this.maxInFlight, true);
+    }
+
+    public UpstreamCall newCall(long requestedTimeoutMillis) {
+        long timeout = requestedTimeoutMillis <= 0 ? maxTimeoutMillis : Math.min(requestedTimeoutMillis, maxTimeoutMillis);
+        return new UpstreamCall(timeout);
+    }
+
+    public void cancel(UpstreamCall call, UpstreamCall.CancelReason reason) {
+        UpstreamPool.Lease inFlight = call.inFlightLease();
+        if (!call.cancel(reason)) {
+            return;
+        }
+        if (reason == UpstreamCall.CancelReason.DEADLINE) {
+            cancelledOnDeadline.incrementAndGet();
+        } else {
+            cancelledOnDisconnect.incrementAndGet();
+        }
+        if (inFlight == null) {
+            skippedBeforeDispatch.incrementAndGet();
+        } else {
+            savedUpstreamNanos.addAndGet(inFlight.expectedRemainingNanos());
+        }
+    }
+
+    public Map<String, Object> cancellationStats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("cancelledOnDeadline", cancelledOnDeadline.get());
+        out.put("cancelledOnDisconnect", cancelledOnDisconnect.get());
+        out.put("skippedBeforeDispatch", skippedBeforeDispatch.get());
+        out.put("estimatedUpstreamMsSaved", savedUpstreamNanos.get() / 1_000_000L);
+        return out;
+    }
+
+    public Map<String, Object> concurrencyStats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("inFlight", inFlight.get());
+        out.put("peakInFlight", peakInFlight.get());
+        out.put("maxInFlight", maxInFlight);
+        out.put("waiting", permits.getQueueLength());
+        return out;
+    }
+
+    public boolean isConfigured() {
+        return pool.isConfigured();
+    }
+
+    public Completion complete(String prompt, UpstreamCall call) throws IOException {
+        ensureActive(call);
+        try {
+            while (!permits.tryAcquire(Math.min(Math.max(call.remainingMillis(), 1L), PERMIT_WAIT_SLICE_MILLIS), TimeUnit.MILLISECONDS)) {
+                if (call.isCancelled()) {
+                    throw new UpstreamCall.CancelledException(call.cancelReason());
+                }
+                if (call.remainingMillis() <= 0) {
+                    throw new UpstreamBusyException("AI service busy, try again shortly");
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new UpstreamBusyException("AI service busy, try again shortly");
+        }
+        int current = inFlight.incrementAndGet();
+        peakInFlight.accumulateAndGet(current, Math::max);
+        try {
+            return attempt(prompt, call);
+        } finally {
+            inFlight.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    private Completion attempt(String prompt, UpstreamCall call) throws IOException {
+        IOException lastIoFailure = null;
+        RuntimeException lastError = null;
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            ensureActive(call);
+            UpstreamPool.Lease lease = pool.acquire();
+            try {
+                Completion completion = send(lease, prompt, call);
+                call.complete();
+                return completion;
+            } catch (UpstreamCall.CancelledException ex) {
+                throw ex;
+            } catch (IOException ex) {
+                ensureActive(call);
+                lease.failed();
+                lastIoFailure = ex;
+                lastError = null;
+            } catch (RetryableFailure ex) {
+                lastError = ex.error;
+                lastIoFailure = null;
+            } finally {
+                call.detach();
+                lease.released();
+            }
+        }
+        if (lastIoFailure != null) {
+            throw lastIoFailure;
+        }
+        throw lastError;
+    }
+
+    private void ensureActive(UpstreamCall call) throws UpstreamCall.CancelledException {
+        if (!call.isCancelled() && call.remainingMillis() <= 0) {
+            cancel(call, UpstreamCall.CancelReason.DEADLINE);
+        }
+        if (call.isCancelled()) {
+            throw new UpstreamCall.CancelledException(call.cancelReason());
+        }
+    }
+
+    private Completion send(UpstreamPool.Lease lease, String prompt, UpstreamCall call) throws IOException, RetryableFailure {
+        long remaining = Math.max(call.remainingMillis(), 1L);
+        URL url = new URL(lease.url());
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        call.attach(lease, conn);
+        conn.setRequestMethod("POST");
+        conn.setConnectTimeout((int) Math.min(15000L, remaining));
+        conn.setReadTimeout((int) Math.min(45000L, remaining));
+        conn.setRequestProperty("Authorization", "Bearer " + lease.apiKey());
+        conn.setRequestProperty("Content-Type", "application/json");
+        conn.setDoOutput(true);
+
+        Map<String, Object> requestBody = new LinkedHashMap<>();
+        requestBody.put("model", pool.model());
+        requestBody.put("messages", List.of(Map.of("role", "user", "content", prompt)));
+
+        String json = mapper.writeValueAsString(requestBody);
+        try (OutputStream os = conn.getOutputStream()) {
+            os.write(json.getBytes(StandardCharsets.UTF_8));
+        }
+
+        int statusCode = conn.getResponseCode();
+        String response = readResponse(conn, statusCode);
+
+        if (statusCode == 429) {
+            lease.rateLimited(parseRetryAfter(conn.getHeaderField("Retry-After")));
+            throw new RetryableFailure(new RuntimeException("OpenAI error: rate limited"));
+        }
+        if (statusCode == 401 || statusCode == 403) {
+            lease.keyRejected();
+            throw new RetryableFailure(new RuntimeException("OpenAI error: API key rejected with " + statusCode));
+        }
+        if (statusCode >= 500) {
+            lease.failed();
+            throw new RetryableFailure(new RuntimeException("OpenAI error: upstream returned " + statusCode));
+        }
+        lease.succeeded();
+
+        Map<String, Object> map = mapper.readValue(response, Map.class);
+        if (statusCode >= 400 || map.containsKey("error")) {
+            Object errorObj = map.get("error");
+            if (errorObj instanceof Map<?, ?> errorMap) {
+                Object msg = errorMap.get("message");
+                if (msg != null) {
+                    throw new RuntimeException("OpenAI error: " + msg);
+                }
+            }
+            throw new RuntimeException("OpenAI error: request failed");
+        }
+
+        List<Map<String, Object>> choices = (List<Map<String, Object>>) map.get("choices");
+        if (choices == null || choices.isEmpty()) {
+            throw new RuntimeException("OpenAI error: empty response");
+        }
+
+        Map<String, Object> first = choices.get(0);
+        Map<String, Object> message = (Map<String, Object>) first.get("message");
+        if (message == null || message.get("content") == null) {
+            throw new RuntimeException("OpenAI error: missing content");
+        }
+        return new Completion(message.get("content").toString(), usageCount(map, "prompt_tokens"), usageCount(map, "completion_tokens"));
+    }
+
+    private static long usageCount(Map<String, Object> response, String field) {
+        if (response.get("usage") instanceof Map<?, ?> usage && usage.get(field) instanceof Number count) {
+            return count.longValue();
+        }
+        return 0L;
+    }
+
+    private static long parseRetryAfter(String header) {
+        if (header == null || header.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(header.trim());
+        } catch (NumberFormatException ex) {
+            return 0L;
+        }
+    }
+
+    private static String readResponse(HttpURLConnection conn, int code) throws IOException {
+        InputStream stream = code >= 400 ? conn.getErrorStream() : conn.getInputStream();
+        if (stream == null) {
+            return "{}";
+        }
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            String line;
+            StringBuilder out = new StringBuilder();
+            while ((line = br.readLine()) != null) {
+                out.append(line);
+            }
+            return out.toString();
+        }
+    }
+
+    public record Completion(String content, long promptTokens, long completionTokens) {
+        public long totalTokens() {
+            return promptTokens + completionTokens;
+        }
+    }
+
+    private static final class RetryableFailure extends Exception {
+        private final RuntimeException error;
+
+        RetryableFailure(RuntimeException error) {
+            super(error.getMessage(), null, false, false);
+            this.error = error;
+        }
+    }
+}
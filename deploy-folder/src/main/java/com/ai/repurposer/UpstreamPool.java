@@ -0,0 +1,357 @@
+package com.ai.repurposer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Component
+public class UpstreamPool {
+    private static final long INITIAL_LATENCY_NANOS = 1_000_000_000L;
+    private static final long DEFAULT_THROTTLE_NANOS = 10_000_000_000L;
+
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private final List<ApiKey> keys = new ArrayList<>();
+    private final AtomicInteger nextKey = new AtomicInteger();
+    private final String model;
+    private final double ewmaAlpha;
+    private final int failureThreshold;
+    private final long ejectionNanos;
+    private final long keyRejectionNanos;
+
+    public UpstreamPool(
+        @Value("${app.upstream.endpoints:https://api.openai.com/v1/chat/completions}") String endpointList,
+        @Value("${app.upstream.api-keys:}") String keyList,
+        @Value("${app.upstream.model:gpt-4o-mini}") String model,
+        @Value("${app.upstream.key-requests-per-minute:0}") int keyRequestsPerMinute,
+        @Value("${app.upstream.ewma-alpha:0.3}") double ewmaAlpha,
+        @Value("${app.upstream.failure-threshold:3}") int failureThreshold,
+        @Value("${app.upstream.ejection-seconds:30}") long ejectionSeconds,
+        @Value("${app.upstream.key-rejection-seconds:300}") long keyRejectionSeconds
+    ) {
+        for (String entry : splitAndTrim(endpointList)) {
+            String[] parts = entry.split("\\|");
+            Endpoint endpoint = new Endpoint(parts[0].trim());
+            for (int i = 1; i < parts.length; i++) {
+                if (!parts[i].isBlank()) {
+                    endpoint.keys.add(new ApiKey(parts[i].trim(), keyRequestsPerMinute));
+                }
+            }
+            endpoints.add(endpoint);
+        }
+        for (String key : splitAndTrim(keyList)) {
+            keys.add(new ApiKey(key, keyRequestsPerMinute));
+        }
+        this.model = model;
+        this.ewmaAlpha = Math.min(Math.max(ewmaAlpha, 0.01), 1.0);
+        this.failureThreshold = Math.max(failureThreshold, 1);
+        this.ejectionNanos = Math.max(ejectionSeconds, 1L) * 1_000_000_000L;
+        this.keyRejectionNanos = Math.max(keyRejectionSeconds, 1L) * 1_000_000_000L;
+    }
+
+    public boolean isConfigured() {
+        return !endpoints.isEmpty() && endpoints.stream().allMatch(endpoint -> !endpoint.keys.isEmpty() || !keys.isEmpty());
+    }
+
+    public String model() {
+        return model;
+    }
+
+    public Lease acquire() {
+        long now = System.nanoTime();
+        Endpoint endpoint = pickEndpoint(now);
+        ApiKey key = endpoint == null ? null : pickKey(endpoint.keys.isEmpty() ? keys : endpoint.keys, now);
+        if (endpoint == null || key == null) {
+            if (endpoint != null) {
+                endpoint.probing.set(false);
+            }
+            throw new UpstreamBusyException("AI service busy, try again shortly");
+        }
+        endpoint.outstanding.incrementAndGet();
+        return new Lease(endpoint, key, now);
+    }
+
+    public List<Map<String, Object>> describe() {
+        long now = System.nanoTime();
+        List<Map<String, Object>> out = new ArrayList<>();
+        for (Endpoint endpoint : endpoints) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("url", endpoint.url);
+            item.put("outstanding", endpoint.outstanding.get());
+            item.put("latencyMs", Math.round(endpoint.latencyNanos() / 1_000_000.0));
+            item.put("consecutiveFailures", endpoint.consecutiveFailures.get());
+            item.put("ejected", endpoint.ejectedUntil > now);
+            out.add(item);
+        }
+        for (ApiKey key : keys) {
+            out.add(describe(key, null, now));
+        }
+        for (Endpoint endpoint : endpoints) {
+            for (ApiKey key : endpoint.keys) {
+                out.add(describe(key, endpoint.url, now));
+            }
+        }
+        return out;
+    }
+
+    private static Map<String, Object> describe(ApiKey key, String endpointUrl, long now) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("key", key.masked());
+        if (endpointUrl != null) {
+            item.put("endpoint", endpointUrl);
+        }
+        item.put("availableRequests", key.available(now));
+        item.put("throttled", key.throttledUntil > now);
+        item.put("rejected", key.rejectedUntil > now);
+        return item;
+    }
+
+    private Endpoint pickEndpoint(long now) {
+        Endpoint best = null;
+        double bestScore = Double.MAX_VALUE;
+        for (Endpoint endpoint : endpoints) {
+            if (!endpoint.isSelectable(now)) {
+                continue;
+            }
+            double score = (endpoint.outstanding.get() + 1) * endpoint.latencyNanos();
+            if (score < bestScore) {
+                best = endpoint;
+                bestScore = score;
+            }
+        }
+        if (best != null) {
+            if (best.ejectedUntil != 0L && !best.probing.compareAndSet(false, true)) {
+                return pickHealthy(now);
+            }
+            return best;
+        }
+        return pickSoonestRecovered();
+    }
+
+    private Endpoint pickHealthy(long now) {
+        Endpoint best = null;
+        double bestScore = Double.MAX_VALUE;
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.ejectedUntil != 0L) {
+                continue;
+            }
+            double score = (endpoint.outstanding.get() + 1) * endpoint.latencyNanos();
+            if (score < bestScore) {
+                best = endpoint;
+                bestScore = score;
+            }
+        }
+        return best != null ? best : pickSoonestRecovered();
+    }
+
+    private Endpoint pickSoonestRecovered() {
+        // Every endpoint is ejected; failing open beats rejecting all traffic until a cooldown ends.
+        Endpoint best = null;
+        for (Endpoint endpoint : endpoints) {
+            if (best == null || endpoint.ejectedUntil < best.ejectedUntil) {
+                best = endpoint;
+            }
+        }
+        return best;
+    }
+
+    private ApiKey pickKey(List<ApiKey> candidates, long now) {
+        int size = candidates.size();
+        int start = Math.floorMod(nextKey.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            ApiKey key = candidates.get((start + i) % size);
+            if (key.tryAcquire(now)) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    private static List<String> splitAndTrim(String input) {
+        List<String> out = new ArrayList<>();
+        if (input == null) {
+            return out;
+        }
+        for (String part : input.split(",")) {
+            if (!part.isBlank()) {
+                out.add(part.trim());
+            }
+        }
+        return out;
+    }
+
+    public final class Lease {
+        private final Endpoint endpoint;
+        private final ApiKey key;
+        private final long startedNanos;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Lease(Endpoint endpoint, ApiKey key, long startedNanos) {
+            this.endpoint = endpoint;
+            this.key = key;
+            this.startedNanos = startedNanos;
+        }
+
+        public String url() {
+            return endpoint.url;
+        }
+
+        public String apiKey() {
+            return key.value;
+        }
+
+        public long expectedRemainingNanos() {
+            long elapsed = System.nanoTime() - startedNanos;
+            return Math.max((long) endpoint.latencyNanos() - elapsed, 0L);
+        }
+
+        public void succeeded() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            endpoint.outstanding.decrementAndGet();
+            endpoint.observe(System.nanoTime() - startedNanos, ewmaAlpha);
+            endpoint.consecutiveFailures.set(0);
+            endpoint.ejectedUntil = 0L;
+            endpoint.probing.set(false);
+        }
+
+        public void failed() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            endpoint.outstanding.decrementAndGet();
+            // A fast error must not make the endpoint look faster; a slow one (e.g. a read timeout) still counts.
+            endpoint.observe(Math.max(System.nanoTime() - startedNanos, (long) endpoint.latencyNanos()), ewmaAlpha);
+            int failures = endpoint.consecutiveFailures.incrementAndGet();
+            if (failures >= failureThreshold || endpoint.probing.get()) {
+                endpoint.ejectedUntil = System.nanoTime() + ejectionNanos;
+            }
+            endpoint.probing.set(false);
+        }
+
+        public void rateLimited(long retryAfterSeconds) {
+            long backoff = retryAfterSeconds > 0 ? retryAfterSeconds * 1_000_000_000L : DEFAULT_THROTTLE_NANOS;
+            key.throttledUntil = System.nanoTime() + backoff;
+            if (released.compareAndSet(false, true)) {
+                endpoint.outstanding.decrementAndGet();
+                endpoint.probing.set(false);
+            }
+        }
+
+        public void keyRejected() {
+            key.rejectedUntil = System.nanoTime() + keyRejectionNanos;
+            if (released.compareAndSet(false, true)) {
+                endpoint.outstanding.decrementAndGet();
+                endpoint.probing.set(false);
+            }
+        }
+
+        public void released() {
+            if (released.compareAndSet(false, true)) {
+                endpoint.outstanding.decrementAndGet();
+                endpoint.probing.set(false);
+            }
+        }
+    }
+
+    private static final class Endpoint {
+        final String url;
+        final List<ApiKey> keys = new ArrayList<>();
+        final AtomicInteger outstanding = new AtomicInteger();
+        final AtomicInteger consecutiveFailures = new AtomicInteger();
+        final AtomicBoolean probing = new AtomicBoolean();
+        final AtomicLong latencyBits = new AtomicLong(Double.doubleToRawLongBits(INITIAL_LATENCY_NANOS));
+        volatile long ejectedUntil;
+
+        Endpoint(String url) {
+            this.url = url;
+        }
+
+        boolean isSelectable(long now) {
+            long until = ejectedUntil;
+            return until == 0L || (until <= now && !probing.get());
+        }
+
+        double latencyNanos() {
+            return Double.longBitsToDouble(latencyBits.get());
+        }
+
+        void observe(long sampleNanos, double alpha) {
+            long prev;
+            long next;
+            do {
+                prev = latencyBits.get();
+                double current = Double.longBitsToDouble(prev);
+                next = Double.doubleToRawLongBits(current + alpha * (sampleNanos - current));
+            } while (!latencyBits.compareAndSet(prev, next));
+        }
+    }
+
+    private static final class ApiKey {
+        final String value;
+        final int requestsPerMinute;
+        final ReentrantLock lock = new ReentrantLock();
+        double tokens;
+        long refilledAt;
+        volatile long throttledUntil;
+        volatile long rejectedUntil;
+
+        ApiKey(String value, int requestsPerMinute) {
+            this.value = value;
+            this.requestsPerMinute = Math.max(requestsPerMinute, 0);
+            this.tokens = this.requestsPerMinute;
+            this.refilledAt = System.nanoTime();
+        }
+
+        boolean tryAcquire(long now) {
+            if (throttledUntil > now || rejectedUntil > now) {
+                return false;
+            }
+            if (requestsPerMinute == 0) {
+                return true;
+            }
+            lock.lock();
+            try {
+                refill(now);
+                if (tokens < 1.0) {
+                    return false;
+                }
+                tokens -= 1.0;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long available(long now) {
+            if (requestsPerMinute == 0) {
+                return -1L;
+            }
+            lock.lock();
+            try {
+                refill(now);
+                return (long) tokens;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void refill(long now) {
+            double perNano = requestsPerMinute / 60_000_000_000.0;
+            tokens = Math.min(requestsPerMinute, tokens + (now - refilledAt) * perNano);
+            refilledAt = now;
+        }
+
+        String masked() {
+            return value.length() <= 4 ? "****" : "****" + value.substring(value.length() - 4);
+        }
+    }
+}
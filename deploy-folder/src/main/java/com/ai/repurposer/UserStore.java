@@ -3,7 +3,10 @@ package com.ai.repurposer;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
@@ -15,47 +18,132 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
 @Component
+@Lazy(false)
 public class UserStore {
+    private static final Logger log = LoggerFactory.getLogger(UserStore.class);
+
     private final ObjectMapper mapper = new ObjectMapper();
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong version = new AtomicLong();
+    private final Map<String, Long> userVersions = new ConcurrentHashMap<>();
     private final Path usersFile;
+    private final boolean backgroundWarmup;
+    private volatile Snapshot snapshot;
+    private volatile boolean ready;
 
-    public UserStore(@Value("${app.users-file:data/users.json}") String usersFilePath) {
+    public UserStore(
+        @Value("${app.users-file:data/users.json}") String usersFilePath,
+        @Value("${app.startup.background-warmup:true}") boolean backgroundWarmup
+    ) {
         this.usersFile = Paths.get(usersFilePath).toAbsolutePath().normalize();
+        this.backgroundWarmup = backgroundWarmup;
     }
 
     @PostConstruct
     public void initialize() throws IOException {
         ensureStorageReady();
+        if (!backgroundWarmup) {
+            warmUp();
+            return;
+        }
+        Thread warmup = new Thread(this::warmUp, "user-store-warmup");
+        warmup.setDaemon(true);
+        warmup.start();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    public long userVersion(String email) {
+        if (email == null || email.isBlank()) {
+            return 0L;
+        }
+        return userVersions.getOrDefault(email.trim().toLowerCase(), 0L);
     }
 
     public List<User> loadUsers() {
-        lock.readLock().lock();
+        List<User> users = snapshot().users;
+        List<User> copies = new ArrayList<>(users.size());
+        for (User user : users) {
+            copies.add(copyOf(user));
+        }
+        return copies;
+    }
+
+    public void saveUsers(List<User> users) {
+        lock.writeLock().lock();
         try {
-            if (!Files.exists(usersFile)) {
-                return new ArrayList<>();
-            }
-            byte[] bytes = Files.readAllBytes(usersFile);
-            String raw = new String(bytes, StandardCharsets.UTF_8).trim();
-            if (raw.isEmpty()) {
-                return new ArrayList<>();
+            List<User> copies = new ArrayList<>(users.size());
+            for (User user : users) {
+                copies.add(copyOf(user));
             }
-            List<User> users = mapper.readValue(raw, new TypeReference<List<User>>() {});
-            return new ArrayList<>(users);
-        } catch (IOException e) {
-            throw new IllegalStateException("Unable to read users store", e);
+            persist(copies);
         } finally {
-            lock.readLock().unlock();
+            lock.writeLock().unlock();
         }
     }
 
-    public void saveUsers(List<User> users) {
+    public void forEachUser(Consumer<User> action) {
+        for (User user : snapshot().users) {
+            action.accept(copyOf(user));
+        }
+    }
+
+    public MergeResult mergeUsers(List<User> incoming, boolean overwrite) {
         lock.writeLock().lock();
+        try {
+            List<User> merged = new ArrayList<>(snapshot().users);
+            Map<String, Integer> positions = new HashMap<>(merged.size() * 2);
+            for (int i = 0; i < merged.size(); i++) {
+                String email = merged.get(i).email;
+                if (email != null && !email.isBlank()) {
+                    positions.putIfAbsent(email.trim().toLowerCase(), i);
+                }
+            }
+            int inserted = 0;
+            int updated = 0;
+            int skipped = 0;
+            for (User user : incoming) {
+                String email = user.email.trim().toLowerCase();
+                Integer position = positions.get(email);
+                if (position == null) {
+                    positions.put(email, merged.size());
+                    merged.add(copyOf(user));
+                    inserted++;
+                } else if (overwrite) {
+                    merged.set(position, copyOf(user));
+                    updated++;
+                } else {
+                    skipped++;
+                }
+            }
+            if (inserted + updated > 0) {
+                persist(merged);
+            }
+            return new MergeResult(inserted, updated, skipped);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void persist(List<User> users) {
         try {
             ensureStorageReady();
             Path temp = usersFile.resolveSibling(usersFile.getFileName() + ".tmp");
@@ -65,10 +153,12 @@ public class UserStore {
             } catch (AtomicMoveNotSupportedException ex) {
                 Files.move(temp, usersFile, StandardCopyOption.REPLACE_EXISTING);
             }
+            Snapshot previous = snapshot;
+            Snapshot next = Snapshot.of(users);
+            snapshot = next;
+            bumpVersions(previous, next);
         } catch (IOException e) {
             throw new IllegalStateException("Unable to persist users store", e);
-        } finally {
-            lock.writeLock().unlock();
         }
     }
 
@@ -76,14 +166,106 @@ public class UserStore {
         if (email == null || email.isBlank()) {
             return Optional.empty();
         }
-        String target = email.trim().toLowerCase();
-        return loadUsers().stream()
-            .filter(u -> u.email != null && u.email.equalsIgnoreCase(target))
-            .findFirst();
+        User user = snapshot().byEmail.get(email.trim().toLowerCase());
+        return user == null ? Optional.empty() : Optional.of(copyOf(user));
     }
 
     public boolean existsByEmail(String email) {
-        return findByEmail(email).isPresent();
+        if (email == null || email.isBlank()) {
+            return false;
+        }
+        return snapshot().byEmail.containsKey(email.trim().toLowerCase());
+    }
+
+    private void bumpVersions(Snapshot previous, Snapshot next) {
+        long current = version.incrementAndGet();
+        Map<String, User> before = previous == null ? Map.of() : previous.byEmail;
+        next.byEmail.forEach((email, user) -> {
+            if (!sameUser(before.get(email), user)) {
+                userVersions.put(email, current);
+            }
+        });
+        for (String email : before.keySet()) {
+            if (!next.byEmail.containsKey(email)) {
+                userVersions.put(email, current);
+            }
+        }
+    }
+
+    private static boolean sameUser(User a, User b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return Objects.equals(a.firstName, b.firstName)
+            && Objects.equals(a.lastName, b.lastName)
+            && Objects.equals(a.age, b.age)
+            && Objects.equals(a.gender, b.gender)
+            && Objects.equals(a.email, b.email)
+            && Objects.equals(a.password, b.password)
+            && Objects.equals(a.plan, b.plan)
+            && Objects.equals(a.billingCycle, b.billingCycle)
+            && Objects.equals(a.planExpiresAtEpochDay, b.planExpiresAtEpochDay);
+    }
+
+    private void warmUp() {
+        long started = System.nanoTime();
+        try {
+            int count = snapshot().users.size();
+            ready = true;
+            log.info("User store warm-up finished: {} users indexed in {} ms",
+                count, (System.nanoTime() - started) / 1_000_000L);
+        } catch (RuntimeException ex) {
+            log.error("User store warm-up failed", ex);
+        }
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        lock.readLock().lock();
+        try {
+            current = snapshot;
+            if (current == null) {
+                current = Snapshot.of(readUsersFile());
+                snapshot = current;
+            }
+            return current;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<User> readUsersFile() {
+        try {
+            if (!Files.exists(usersFile)) {
+                return new ArrayList<>();
+            }
+            byte[] bytes = Files.readAllBytes(usersFile);
+            String raw = new String(bytes, StandardCharsets.UTF_8).trim();
+            if (raw.isEmpty()) {
+                return new ArrayList<>();
+            }
+            List<User> users = mapper.readValue(raw, new TypeReference<List<User>>() {});
+            return new ArrayList<>(users);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read users store", e);
+        }
+    }
+
+    private static User copyOf(User source) {
+        User copy = new User();
+        copy.firstName = source.firstName;
+        copy.lastName = source.lastName;
+        copy.age = source.age;
+        copy.gender = source.gender;
+        copy.email = source.email;
+        copy.password = source.password;
+        copy.plan = source.plan;
+        copy.billingCycle = source.billingCycle;
+        copy.planExpiresAtEpochDay = source.planExpiresAtEpochDay;
+        return copy;
     }
 
     private void ensureStorageReady() throws IOException {
@@ -111,4 +293,18 @@ public class UserStore {
 
         Files.writeString(usersFile, "[]", StandardCharsets.UTF_8);
     }
+
+    public record MergeResult(int inserted, int updated, int skipped) {}
+
+    private record Snapshot(List<User> users, Map<String, User> byEmail) {
+        static Snapshot of(List<User> users) {
+            Map<String, User> byEmail = new HashMap<>(users.size() * 2);
+            for (User user : users) {
+                if (user.email != null && !user.email.isBlank()) {
+                    byEmail.putIfAbsent(user.email.trim().toLowerCase(), user);
+                }
+            }
+            return new Snapshot(Collections.unmodifiableList(users), byEmail);
+        }
+    }
 }
@@ -0,0 +1,273 @@
+package com.ai.repurposer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantLock;
+
+@RestController
+public class UserTransferController {
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ReentrantLock importLock = new ReentrantLock();
+    private final UserStore userStore;
+    private final Passwords passwords;
+    private final ForkJoinPool hashPool;
+    private final int batchSize;
+    private final AdminKeys adminKeys;
+
+    public UserTransferController(
+        UserStore userStore,
+        Passwords passwords,
+        @Value("${app.import.batch-size:5000}") int batchSize,
+        @Value("${app.import.hash-threads:0}") int hashThreads,
+        AdminKeys adminKeys
+    ) {
+        this.userStore = userStore;
+        this.passwords = passwords;
+        this.batchSize = Math.max(batchSize, 1);
+        this.hashPool = new ForkJoinPool(hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors());
+        this.adminKeys = adminKeys;
+    }
+
+    // Password hashes are left out unless includeCredentials=true, which is what a re-import needs; legacy
+    // plaintext passwords are hashed on the way out so the export never carries a usable password.
+    @GetMapping("/admin/users/export")
+    public void exportUsers(
+        @RequestParam(defaultValue = "false") boolean includeCredentials,
+        HttpServletRequest request,
+        HttpServletResponse response
+    ) throws IOException {
+        if (!adminKeys.isAdminRequest(request)) {
+            forbidden(response);
+            return;
+        }
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        OutputStream out = new BufferedOutputStream(response.getOutputStream(), 64 * 1024);
+        try {
+            userStore.forEachUser(user -> {
+                try {
+                    ObjectNode record = mapper.valueToTree(user);
+                    if (!includeCredentials || user.password == null) {
+                        record.remove("password");
+                    } else if (!passwords.isHashed(user.password)) {
+                        record.put("password", passwords.hash(user.password));
+                    }
+                    out.write(mapper.writeValueAsBytes(record));
+                    out.write('\n');
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        out.flush();
+    }
+
+    @PostMapping(value = "/admin/users/import", consumes = {NDJSON, "application/json", "text/plain"})
+    public void importUsers(
+        @RequestParam(defaultValue = "skip") String mode,
+        HttpServletRequest request,
+        HttpServletResponse response
+    ) throws IOException {
+        if (!adminKeys.isAdminRequest(request)) {
+            forbidden(response);
+            return;
+        }
+        String normalizedMode = mode.trim().toLowerCase();
+        if (!"skip".equals(normalizedMode) && !"overwrite".equals(normalizedMode)) {
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getWriter().write("Mode must be skip or overwrite");
+            return;
+        }
+        if (!importLock.tryLock()) {
+            response.setStatus(HttpStatus.CONFLICT.value());
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getWriter().write("Import already running");
+            return;
+        }
+        try {
+            response.setContentType(NDJSON);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            runImport(request, response.getOutputStream(), "overwrite".equals(normalizedMode));
+        } finally {
+            importLock.unlock();
+        }
+    }
+
+    private void runImport(HttpServletRequest request, OutputStream out, boolean overwrite) throws IOException {
+        ImportProgress progress = new ImportProgress();
+        List<User> batch = new ArrayList<>(batchSize);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8));
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            progress.processed++;
+            String error;
+            try {
+                User user = mapper.readValue(line, User.class);
+                error = validate(user);
+                if (error == null) {
+                    batch.add(normalize(user));
+                }
+            } catch (JsonProcessingException ex) {
+                error = "Malformed JSON: " + ex.getOriginalMessage();
+            }
+            if (error != null) {
+                progress.errors++;
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("line", lineNumber);
+                entry.put("error", error);
+                writeLine(out, entry);
+            }
+            if (batch.size() >= batchSize) {
+                if (!commit(batch, overwrite, progress, out)) {
+                    return;
+                }
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty() && !commit(batch, overwrite, progress, out)) {
+            return;
+        }
+        Map<String, Object> summary = progress.describe();
+        summary.put("done", true);
+        writeLine(out, summary);
+    }
+
+    private boolean commit(List<User> batch, boolean overwrite, ImportProgress progress, OutputStream out) throws IOException {
+        try {
+            hashPool.submit(() -> batch.parallelStream()
+                .filter(user -> !passwords.isHashed(user.password))
+                .forEach(user -> user.password = passwords.hash(user.password))
+            ).get();
+            UserStore.MergeResult result = userStore.mergeUsers(batch, overwrite);
+            progress.inserted += result.inserted();
+            progress.updated += result.updated();
+            progress.skipped += result.skipped();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            writeLine(out, failure(progress, "Import interrupted"));
+            return false;
+        } catch (ExecutionException | IllegalStateException ex) {
+            writeLine(out, failure(progress, "Import failed: " + ex.getMessage()));
+            return false;
+        }
+        writeLine(out, progress.describe());
+        return true;
+    }
+
+    private static Map<String, Object> failure(ImportProgress progress, String error) {
+        Map<String, Object> entry = progress.describe();
+        entry.put("error", error);
+        entry.put("done", false);
+        return entry;
+    }
+
+    private void writeLine(OutputStream out, Map<String, Object> entry) throws IOException {
+        out.write(mapper.writeValueAsBytes(entry));
+        out.write('\n');
+        out.flush();
+    }
+
+    private static String validate(User user) {
+        String email = normalizeEmail(user.email);
+        if (!email.matches("^[^\\s@]+@[^\\s@]+\\.[^\\s@]+$")) {
+            return "Valid email required";
+        }
+        if (user.password == null || user.password.isBlank()) {
+            return "Password required";
+        }
+        if (!"free".equals(Plans.normalize(user.plan)) && normalizePaidCycle(user.billingCycle) == null) {
+            return "Paid plan requires billingCycle monthly or yearly";
+        }
+        return null;
+    }
+
+    private static User normalize(User user) {
+        user.email = normalizeEmail(user.email);
+        user.firstName = user.firstName == null ? "" : user.firstName.trim();
+        user.lastName = user.lastName == null ? "" : user.lastName.trim();
+        user.gender = user.gender == null ? "" : user.gender.trim().toLowerCase();
+        user.plan = Plans.normalize(user.plan);
+        if ("free".equals(user.plan)) {
+            user.billingCycle = "none";
+            user.planExpiresAtEpochDay = null;
+        } else {
+            user.billingCycle = normalizePaidCycle(user.billingCycle);
+            if (user.planExpiresAtEpochDay == null) {
+                user.planExpiresAtEpochDay = Plans.expiryEpochDay(user.plan, user.billingCycle);
+            }
+        }
+        return user;
+    }
+
+    private static String normalizePaidCycle(String cycle) {
+        String normalized = cycle == null ? "" : cycle.trim().toLowerCase();
+        return "monthly".equals(normalized) || "yearly".equals(normalized) ? normalized : null;
+    }
+
+    private void forbidden(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.FORBIDDEN.value());
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write("Admin key required");
+    }
+
+    private static String normalizeEmail(String email) {
+        return email == null ? "" : email.trim().toLowerCase();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashPool.shutdownNow();
+    }
+
+    private static final class ImportProgress {
+        long processed;
+        long inserted;
+        long updated;
+        long skipped;
+        long errors;
+
+        Map<String, Object> describe() {
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("processed", processed);
+            out.put("inserted", inserted);
+            out.put("updated", updated);
+            out.put("skipped", skipped);
+            out.put("errors", errors);
+            return out;
+        }
+    }
+}
@@ -48,7 +48,7 @@ public class WebConfig implements WebMvcConfigurer {
             .allowedOriginPatterns(allowedOrigins)
             .allowedMethods(allowedMethods)
             .allowedHeaders(allowedHeaders)
-            .exposedHeaders("Content-Type", "X-Auth-Token")
+            .exposedHeaders("Content-Type", "X-Auth-Token", "Server-Timing", "ETag")
             .allowCredentials(false)
             .maxAge(3600);
     }
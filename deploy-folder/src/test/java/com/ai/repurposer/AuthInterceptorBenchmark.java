@@ -0,0 +1,181 @@
+package com.ai.repurposer;
+
+import ch.qos.logback.classic.Level;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.LoggerFactory;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+/**
+ * Measures {@link AuthTokenInterceptor#preHandle} throughput for the pre-signing scheme (plain-email token
+ * resolved against the user store) and for HMAC-signed tokens. Not a test; run it from deploy-folder with
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.ai.repurposer.AuthInterceptorBenchmark -Dexec.args="--users 10000 --threads 4 --seconds 5"
+ * </pre>
+ * The per-request deprecation warning for legacy tokens is silenced so both paths measure token resolution only.
+ * The last two rows time the store lookup and {@link AuthTokens#verify} on their own: the legacy path is a single
+ * hash-map probe, while a signed token costs two Base64 decodes plus an HMAC-SHA256 over the payload, which is what
+ * keeps the signed row below the legacy one. That gap buys unforgeable, revocable tokens.
+ */
+public final class AuthInterceptorBenchmark {
+    private static final int TOKEN_POOL = 1024;
+
+    public static void main(String[] argv) throws Exception {
+        Map<String, String> args = new HashMap<>();
+        for (int i = 0; i + 1 < argv.length; i += 2) {
+            args.put(argv[i].replaceFirst("^--", ""), argv[i + 1]);
+        }
+        int users = Integer.parseInt(args.getOrDefault("users", "10000"));
+        int threads = Integer.parseInt(args.getOrDefault("threads", "4"));
+        long seconds = Long.parseLong(args.getOrDefault("seconds", "5"));
+
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.ERROR);
+
+        Path dir = Files.createTempDirectory("auth-bench");
+        Path usersFile = dir.resolve("users.json");
+        List<User> records = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            records.add(new User("user" + i + "@bench.local", "x", i % 3 == 0 ? "pro" : "free"));
+        }
+        new ObjectMapper().writeValue(usersFile.toFile(), records);
+
+        UserStore userStore = new UserStore(usersFile.toString(), false);
+        userStore.initialize();
+        AuthTokens authTokens = new AuthTokens("benchmark-secret", 168, true);
+        AuthTokenInterceptor interceptor = new AuthTokenInterceptor(userStore, authTokens);
+
+        String[] emails = new String[TOKEN_POOL];
+        String[] signed = new String[TOKEN_POOL];
+        for (int i = 0; i < TOKEN_POOL; i++) {
+            emails[i] = "user" + (long) i * users / TOKEN_POOL + "@bench.local";
+            signed[i] = authTokens.issue(emails[i]);
+        }
+
+        System.out.printf("users=%d threads=%d seconds=%d%n", users, threads, seconds);
+        run("legacy email token (store lookup)", threads, seconds, preHandle(interceptor, emails));
+        run("signed token (HMAC verify)", threads, seconds, preHandle(interceptor, signed));
+        run("  UserStore.existsByEmail only", threads, seconds, () -> i -> userStore.existsByEmail(emails[i]));
+        run("  AuthTokens.verify only", threads, seconds, () -> i -> authTokens.verify(signed[i]).isPresent());
+        Files.deleteIfExists(usersFile);
+        Files.deleteIfExists(dir);
+    }
+
+    private static Supplier<IntPredicate> preHandle(AuthTokenInterceptor interceptor, String[] tokens) {
+        return () -> {
+            FakeRequest state = new FakeRequest();
+            HttpServletRequest request = state.proxy();
+            HttpServletResponse response = fakeResponse();
+            return i -> {
+                state.reset(tokens[i]);
+                try {
+                    return interceptor.preHandle(request, response, null);
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            };
+        };
+    }
+
+    private static void run(String name, int threads, long seconds, Supplier<IntPredicate> operation)
+        throws Exception {
+        measure(threads, 1, operation);
+        long[] result = measure(threads, seconds, operation);
+        double opsPerSecond = result[0] * 1e9 / result[1];
+        System.out.printf("%-36s %,14.0f ops/s %8.0f ns/op%n", name, opsPerSecond, threads * 1e9 / opsPerSecond);
+    }
+
+    private static long[] measure(int threads, long seconds, Supplier<IntPredicate> operation) throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong operations = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                IntPredicate op = operation.get();
+                long count = 0;
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                while (running.get()) {
+                    if (!op.test((int) (count & (TOKEN_POOL - 1)))) {
+                        rejected.incrementAndGet();
+                    }
+                    count++;
+                }
+                operations.addAndGet(count);
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        ready.await();
+        long started = System.nanoTime();
+        go.countDown();
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - started;
+        if (rejected.get() > 0) {
+            throw new IllegalStateException(rejected.get() + " requests were rejected");
+        }
+        return new long[] {operations.get(), elapsed};
+    }
+
+    private static HttpServletResponse fakeResponse() {
+        PrintWriter writer = new PrintWriter(new StringWriter());
+        return (HttpServletResponse) Proxy.newProxyInstance(
+            AuthInterceptorBenchmark.class.getClassLoader(),
+            new Class<?>[] {HttpServletResponse.class},
+            (proxy, method, methodArgs) -> "getWriter".equals(method.getName()) ? writer : null);
+    }
+
+    private static final class FakeRequest {
+        private final Map<String, Object> attributes = new HashMap<>();
+        private String token;
+
+        void reset(String token) {
+            this.token = token;
+            attributes.clear();
+        }
+
+        HttpServletRequest proxy() {
+            return (HttpServletRequest) Proxy.newProxyInstance(
+                AuthInterceptorBenchmark.class.getClassLoader(),
+                new Class<?>[] {HttpServletRequest.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getMethod" -> "GET";
+                    case "getRequestURI" -> "/plan";
+                    case "getDispatcherType" -> DispatcherType.REQUEST;
+                    case "getHeader" -> "Authorization".equals(args[0]) ? "Bearer " + token : null;
+                    case "getParameter" -> null;
+                    case "getAttribute" -> attributes.get((String) args[0]);
+                    case "setAttribute" -> attributes.put((String) args[0], args[1]);
+                    default -> null;
+                });
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.ai.repurposer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Fires a burst of concurrent /generate requests from one pro account at a running instance, then prints the
+ * status counts, latency and the upstream concurrency counters from /admin/upstream. Used to compare the
+ * platform-thread and virtual-thread modes; start the instance against the in-process stub with
+ * <pre>
+ * VIRTUAL_THREADS=true UPSTREAM_ENDPOINTS=http://127.0.0.1:9099/v1/chat/completions UPSTREAM_API_KEYS=load \
+ *     UPSTREAM_MAX_IN_FLIGHT=1024 SERVER_TOMCAT_ACCEPTCOUNT=2048 TOKEN_BUDGET_PRO_DAILY=0 TOKEN_BUDGET_PRO_MONTHLY=0 \
+ *     java -jar target/repurposer-0.0.1-SNAPSHOT.jar
+ * </pre>
+ * and drive it from deploy-folder with
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.ai.repurposer.GenerateLoadDriver \
+ *     -Dexec.args="--target http://127.0.0.1:8080 --clients 2000 --stub-port 9099 --stub-delay-ms 3000"
+ * </pre>
+ * Repeat with {@code VIRTUAL_THREADS=false} for the baseline. Leaving {@code UPSTREAM_MAX_IN_FLIGHT} at its default
+ * of 256 caps peak in-flight calls at 256 in both modes.
+ */
+public final class GenerateLoadDriver {
+    private static final String EMAIL = "load-driver@load.local";
+    private static final String PASSWORD = "load-password";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(30))
+        .build();
+    private final String target;
+    private final String adminKey;
+
+    private GenerateLoadDriver(String target, String adminKey) {
+        this.target = target.replaceAll("/+$", "");
+        this.adminKey = adminKey;
+    }
+
+    public static void main(String[] argv) throws Exception {
+        Map<String, String> args = new HashMap<>();
+        for (int i = 0; i + 1 < argv.length; i += 2) {
+            if (!argv[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument " + argv[i]);
+            }
+            args.put(argv[i].substring(2), argv[i + 1]);
+        }
+        HttpServer stub = null;
+        if (args.containsKey("stub-port")) {
+            stub = TrafficReplay.startStub(Integer.parseInt(args.get("stub-port")),
+                Long.parseLong(args.getOrDefault("stub-delay-ms", "3000")));
+        }
+        try {
+            GenerateLoadDriver driver = new GenerateLoadDriver(
+                args.getOrDefault("target", "http://127.0.0.1:8080"), args.getOrDefault("admin-key", "abhi-nonu01"));
+            driver.run(Integer.parseInt(args.getOrDefault("clients", "1000")),
+                Long.parseLong(args.getOrDefault("timeout-ms", "40000")));
+        } finally {
+            if (stub != null) {
+                stub.stop(0);
+            }
+        }
+    }
+
+    private void run(int clients, long timeoutMillis) throws Exception {
+        String token = prepareAccount();
+        String body = mapper.writeValueAsString(Map.of("text", "an idea about load testing"));
+        List<CompletableFuture<long[]>> pending = new ArrayList<>(clients);
+        long started = System.nanoTime();
+        for (int i = 0; i < clients; i++) {
+            HttpRequest request = HttpRequest.newBuilder(uri("/generate?email=" + encode(EMAIL)))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + token)
+                .header("X-Request-Timeout-Ms", Long.toString(timeoutMillis))
+                .timeout(Duration.ofMillis(timeoutMillis + 30_000L))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+            long sent = System.nanoTime();
+            pending.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> new long[] {System.nanoTime() - sent, error == null ? response.statusCode() : -1}));
+        }
+        Map<Long, Integer> statuses = new TreeMap<>();
+        long[] latencies = new long[clients];
+        for (int i = 0; i < clients; i++) {
+            long[] result = pending.get(i).join();
+            latencies[i] = result[0];
+            statuses.merge(result[1], 1, Integer::sum);
+        }
+        long elapsed = System.nanoTime() - started;
+        Arrays.sort(latencies);
+        System.out.printf("%d requests in %.1f s, statuses %s (-1 = client error)%n", clients, elapsed / 1e9, statuses);
+        System.out.printf("latency p50 %.1f s, p99 %.1f s, max %.1f s%n",
+            latencies[clients / 2] / 1e9, latencies[Math.max((int) Math.ceil(clients * 0.99) - 1, 0)] / 1e9,
+            latencies[clients - 1] / 1e9);
+        HttpResponse<String> upstream = client.send(HttpRequest.newBuilder(uri("/admin/upstream"))
+            .header("X-Admin-Key", adminKey).GET().build(), HttpResponse.BodyHandlers.ofString());
+        System.out.println("concurrency " + mapper.readTree(upstream.body()).path("concurrency"));
+    }
+
+    private String prepareAccount() throws Exception {
+        post("/signup", Map.of("firstName", "Load", "age", 30, "gender", "other", "email", EMAIL, "password", PASSWORD));
+        client.send(HttpRequest.newBuilder(uri("/upgrade?email=" + encode(EMAIL) + "&plan=pro&cycle=monthly"))
+            .header("X-Admin-Key", adminKey)
+            .POST(HttpRequest.BodyPublishers.noBody())
+            .build(), HttpResponse.BodyHandlers.discarding());
+        return post("/login", Map.of("email", EMAIL, "password", PASSWORD)).headers().firstValue("X-Auth-Token")
+            .orElseThrow(() -> new IllegalStateException("Login failed for " + EMAIL));
+    }
+
+    private HttpResponse<String> post(String path, Map<String, Object> body) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri(path))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(body)))
+            .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String pathAndQuery) {
+        return URI.create(target + pathAndQuery);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,104 @@
+package com.ai.repurposer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal SMTP sink for exercising {@link MailOutbox} locally. It accepts every message, prints one line per
+ * delivered message with its connection number (so batching over a shared connection is visible) and can refuse
+ * the first connections with a 421 to trigger the outbox retry path. Not a test; run it from deploy-folder with
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.ai.repurposer.SmtpStub \
+ *     -Dexec.args="--port 2525 --refuse-first 1"
+ * </pre>
+ * and start the instance with {@code MAIL_ENABLED=true SPRING_MAIL_HOST=127.0.0.1 SPRING_MAIL_PORT=2525}.
+ * Stopping the stub while messages are pending and starting the instance again checks replay from the outbox log.
+ */
+public final class SmtpStub {
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger delivered = new AtomicInteger();
+    private final int refuseFirst;
+    private final long delayMillis;
+
+    private SmtpStub(int refuseFirst, long delayMillis) {
+        this.refuseFirst = refuseFirst;
+        this.delayMillis = delayMillis;
+    }
+
+    public static void main(String[] argv) throws IOException {
+        Map<String, String> args = new HashMap<>();
+        for (int i = 0; i + 1 < argv.length; i += 2) {
+            if (!argv[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument " + argv[i]);
+            }
+            args.put(argv[i].substring(2), argv[i + 1]);
+        }
+        int port = Integer.parseInt(args.getOrDefault("port", "2525"));
+        SmtpStub stub = new SmtpStub(Integer.parseInt(args.getOrDefault("refuse-first", "0")),
+            Long.parseLong(args.getOrDefault("delay-ms", "0")));
+        try (ServerSocket server = new ServerSocket(port, 128, InetAddress.getLoopbackAddress())) {
+            System.out.println("SMTP stub listening on 127.0.0.1:" + port);
+            while (true) {
+                Socket socket = server.accept();
+                int connection = stub.connections.incrementAndGet();
+                Thread handler = new Thread(() -> stub.handle(socket, connection), "smtp-stub-" + connection);
+                handler.setDaemon(true);
+                handler.start();
+            }
+        }
+    }
+
+    private void handle(Socket socket, int connection) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.US_ASCII)) {
+            if (connection <= refuseFirst) {
+                reply(out, "421 stub refusing connection " + connection);
+                return;
+            }
+            reply(out, "220 smtp stub ready");
+            int messages = 0;
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.trim().toUpperCase(Locale.ROOT);
+                if (command.startsWith("EHLO") || command.startsWith("HELO")) {
+                    reply(out, "250 smtp stub");
+                } else if (command.equals("DATA")) {
+                    reply(out, "354 end data with <CR><LF>.<CR><LF>");
+                    String data;
+                    while ((data = in.readLine()) != null && !data.equals(".")) {
+                        // Message content is discarded.
+                    }
+                    Thread.sleep(delayMillis);
+                    messages++;
+                    System.out.printf("connection %d message %d (total %d)%n", connection, messages, delivered.incrementAndGet());
+                    reply(out, "250 queued");
+                } else if (command.equals("QUIT")) {
+                    reply(out, "221 bye");
+                    return;
+                } else {
+                    reply(out, "250 ok");
+                }
+            }
+        } catch (IOException ex) {
+            System.out.println("connection " + connection + " closed: " + ex.getMessage());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void reply(PrintWriter out, String line) {
+        out.print(line + "\r\n");
+        out.flush();
+    }
+}
@@ -0,0 +1,334 @@
+package com.ai.repurposer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Replays a traffic capture (see {@link TrafficCapture}) against a running instance and reports
+ * latency percentiles per endpoint. Not a test; run it from deploy-folder with
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.ai.repurposer.TrafficReplay \
+ *     -Dexec.args="--file requests.jsonl --target http://127.0.0.1:8080 --speed 2 --stub-port 9099"
+ * </pre>
+ * With {@code --stub-port} an OpenAI-compatible stub is started in-process; point the instance at it with
+ * {@code UPSTREAM_ENDPOINTS=http://127.0.0.1:9099/v1/chat/completions UPSTREAM_API_KEYS=replay}.
+ * The stub holds each completion for the captured duration of the originating request.
+ */
+public final class TrafficReplay {
+    private static final String PASSWORD = "replay-password";
+    private static final Pattern DELAY_MARKER = Pattern.compile("\\[replay [0-9a-f]+ (\\d+)ms]");
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(10))
+        .build();
+    private final Map<String, String> args;
+    private final String target;
+    private final double speed;
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<String, String> tokens = new HashMap<>();
+    private final Map<Integer, String> logoutTokens = new HashMap<>();
+    private final Map<String, ConcurrentLinkedQueue<long[]>> results = new ConcurrentHashMap<>();
+    private final AtomicLong maxDispatchLagNanos = new AtomicLong();
+
+    private TrafficReplay(Map<String, String> args) {
+        this.args = args;
+        this.target = args.getOrDefault("target", "http://127.0.0.1:8080").replaceAll("/+$", "");
+        this.speed = Double.parseDouble(args.getOrDefault("speed", "1"));
+        if (speed <= 0) {
+            throw new IllegalArgumentException("--speed must be positive");
+        }
+    }
+
+    public static void main(String[] argv) throws Exception {
+        Map<String, String> args = new HashMap<>();
+        for (int i = 0; i + 1 < argv.length; i += 2) {
+            if (!argv[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument " + argv[i]);
+            }
+            args.put(argv[i].substring(2), argv[i + 1]);
+        }
+        new TrafficReplay(args).run();
+    }
+
+    private void run() throws Exception {
+        List<Map<String, Object>> records = load(Paths.get(args.getOrDefault("file", "requests.jsonl")));
+        if (records.isEmpty()) {
+            System.out.println("No captured /generate or auth requests to replay");
+            return;
+        }
+        HttpServer stub = null;
+        if (args.containsKey("stub-port")) {
+            stub = startStub(Integer.parseInt(args.get("stub-port")), Long.parseLong(args.getOrDefault("stub-delay-ms", "800")));
+        }
+        try {
+            prepareAccounts(records);
+            replay(records);
+            report(records.size());
+        } finally {
+            if (stub != null) {
+                stub.stop(0);
+            }
+        }
+    }
+
+    private List<Map<String, Object>> load(Path file) throws IOException {
+        List<Map<String, Object>> records = new ArrayList<>();
+        long limit = Long.parseLong(args.getOrDefault("limit", Long.toString(Long.MAX_VALUE)));
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.isBlank() || records.size() >= limit) {
+                continue;
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> record = mapper.readValue(line, Map.class);
+            if (record.get("path") instanceof String && record.get("ts") instanceof Number) {
+                records.add(record);
+            }
+        }
+        records.sort((a, b) -> Long.compare(number(a, "ts"), number(b, "ts")));
+        return records;
+    }
+
+    private void prepareAccounts(List<Map<String, Object>> records) throws Exception {
+        Map<String, String> plans = new HashMap<>();
+        for (Map<String, Object> record : records) {
+            String user = (String) record.get("user");
+            if (user != null && !"/signup".equals(record.get("path")) && number(record, "status") < 400) {
+                String plan = (String) record.get("plan");
+                plans.merge(user, plan == null ? "free" : plan, (previous, next) -> "free".equals(next) ? previous : next);
+            }
+        }
+        String adminKey = args.getOrDefault("admin-key", "abhi-nonu01");
+        for (Map.Entry<String, String> entry : plans.entrySet()) {
+            String email = emailFor(entry.getKey());
+            post("/signup", Map.of("firstName", "Replay", "age", 30, "gender", "other", "email", email, "password", PASSWORD));
+            if (!"free".equals(entry.getValue())) {
+                send(HttpRequest.newBuilder(uri("/upgrade?email=" + encode(email) + "&plan=" + entry.getValue() + "&cycle=monthly"))
+                    .header("X-Admin-Key", adminKey)
+                    .POST(HttpRequest.BodyPublishers.noBody()));
+            }
+            login(email).ifPresent(token -> tokens.put(entry.getKey(), token));
+        }
+        for (int i = 0; i < records.size(); i++) {
+            String user = (String) records.get(i).get("user");
+            if ("/logout".equals(records.get(i).get("path")) && tokens.containsKey(user)) {
+                String token;
+                do {
+                    token = login(emailFor(user)).orElse(null);
+                } while (token != null && (token.equals(tokens.get(user)) || logoutTokens.containsValue(token)));
+                if (token != null) {
+                    logoutTokens.put(i, token);
+                }
+            }
+        }
+        System.out.printf("Prepared %d replay accounts (%d with tokens)%n", plans.size(), tokens.size());
+    }
+
+    private void replay(List<Map<String, Object>> records) throws InterruptedException {
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
+        ConcurrentLinkedQueue<CompletableFuture<?>> pending = new ConcurrentLinkedQueue<>();
+        long firstTs = number(records.get(0), "ts");
+        long startNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+        for (int i = 0; i < records.size(); i++) {
+            Map<String, Object> record = records.get(i);
+            int index = i;
+            long dueNanos = startNanos + (long) ((number(record, "ts") - firstTs) * 1_000_000L / speed);
+            scheduler.schedule(() -> {
+                maxDispatchLagNanos.accumulateAndGet(System.nanoTime() - dueNanos, Math::max);
+                pending.add(dispatch(record, index));
+            }, dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        scheduler.shutdown();
+        scheduler.awaitTermination(1, TimeUnit.DAYS);
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).exceptionally(ex -> null).join();
+    }
+
+    private CompletableFuture<?> dispatch(Map<String, Object> record, int index) {
+        String path = (String) record.get("path");
+        String user = (String) record.get("user");
+        String token = "/logout".equals(path) ? logoutTokens.get(index) : user == null ? null : tokens.get(user);
+        HttpRequest.Builder request;
+        switch (path) {
+            case "/generate" -> {
+                String email = user == null ? "unknown-" + index + "@replay.local" : emailFor(user);
+                request = HttpRequest.newBuilder(uri("/generate?email=" + encode(email)))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(json(Map.of("text", synthesizeInput(record)))));
+            }
+            case "/signup" -> request = HttpRequest.newBuilder(uri("/signup"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json(Map.of(
+                    "firstName", "Replay", "age", 30, "gender", "other",
+                    "email", "signup-" + index + "-" + runId + "@replay.local", "password", PASSWORD))));
+            case "/login" -> request = HttpRequest.newBuilder(uri("/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json(Map.of(
+                    "email", user == null ? "missing-" + index + "@replay.local" : emailFor(user), "password", PASSWORD))));
+            case "/logout" -> request = HttpRequest.newBuilder(uri("/logout"))
+                .POST(HttpRequest.BodyPublishers.noBody());
+            default -> {
+                return CompletableFuture.completedFuture(null);
+            }
+        }
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        if (record.get("client") instanceof String clientHash) {
+            request.header("X-Forwarded-For", syntheticIp(clientHash));
+        }
+        request.timeout(Duration.ofSeconds(120));
+        long started = System.nanoTime();
+        return client.sendAsync(request.build(), HttpResponse.BodyHandlers.discarding())
+            .handle((response, error) -> {
+                int status = error == null ? response.statusCode() : -1;
+                results.computeIfAbsent(path, key -> new ConcurrentLinkedQueue<>())
+                    .add(new long[] {System.nanoTime() - started, status});
+                return null;
+            });
+    }
+
+    private void report(int total) {
+        System.out.printf("Replayed %d requests at %.2fx, max dispatch lag %d ms%n",
+            total, speed, maxDispatchLagNanos.get() / 1_000_000L);
+        System.out.printf("%-10s %7s %9s %9s %9s %9s  %s%n", "endpoint", "count", "p50 ms", "p90 ms", "p99 ms", "max ms", "statuses");
+        new TreeMap<>(results).forEach((path, samples) -> {
+            long[] latencies = samples.stream().mapToLong(sample -> sample[0]).sorted().toArray();
+            Map<Long, Integer> statuses = new TreeMap<>();
+            samples.forEach(sample -> statuses.merge(sample[1], 1, Integer::sum));
+            System.out.printf("%-10s %7d %9.1f %9.1f %9.1f %9.1f  %s%n", path, latencies.length,
+                percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+                latencies[latencies.length - 1] / 1e6, statuses);
+        });
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int rank = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(rank, 0)] / 1e6;
+    }
+
+    static HttpServer startStub(int port, long defaultDelayMs) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        ObjectMapper mapper = new ObjectMapper();
+        ExecutorService workers = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "replay-stub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(workers);
+        server.createContext("/", exchange -> {
+            String body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            Matcher marker = DELAY_MARKER.matcher(body);
+            long delay = marker.find() ? Long.parseLong(marker.group(1)) : defaultDelayMs;
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] response = mapper.writeValueAsBytes(Map.of(
+                "choices", List.of(Map.of("message", Map.of("content",
+                    "Video 1\nReplay output\n\nVideo 2\nReplay output\n\nVideo 3\nReplay output\n\nVideo 4\nReplay output"))),
+                "usage", Map.of("prompt_tokens", body.length() / 4, "completion_tokens", 200, "total_tokens", body.length() / 4 + 200)
+            ));
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        server.start();
+        System.out.printf("Stub upstream listening on http://127.0.0.1:%d/v1/chat/completions%n", server.getAddress().getPort());
+        return server;
+    }
+
+    private static String synthesizeInput(Map<String, Object> record) {
+        String hash = record.get("inputHash") instanceof String value ? value : "0";
+        int chars = (int) number(record, "inputChars");
+        StringBuilder text = new StringBuilder();
+        if ("url".equals(record.get("inputKind"))) {
+            text.append("https://www.youtube.com/watch?v=").append(hash).append(' ');
+        }
+        text.append("[replay ").append(hash).append(' ').append(number(record, "durationMs")).append("ms]");
+        long seed = Long.parseUnsignedLong(hash.length() > 15 ? hash.substring(0, 15) : hash, 16);
+        while (text.length() < chars) {
+            seed = seed * 6364136223846793005L + 1442695040888963407L;
+            text.append(' ').append(Long.toString(seed >>> 40, 36));
+        }
+        return text.toString();
+    }
+
+    private static String syntheticIp(String clientHash) {
+        long value = Long.parseUnsignedLong(clientHash.substring(0, Math.min(clientHash.length(), 6)), 16);
+        return "10." + ((value >> 16) & 0xff) + "." + ((value >> 8) & 0xff) + "." + (value & 0xff);
+    }
+
+    private static long number(Map<String, Object> record, String field) {
+        return record.get(field) instanceof Number value ? value.longValue() : 0L;
+    }
+
+    private static String emailFor(String userHash) {
+        return "replay-" + userHash + "@replay.local";
+    }
+
+    private Optional<String> login(String email) throws Exception {
+        return post("/login", Map.of("email", email, "password", PASSWORD)).headers().firstValue("X-Auth-Token");
+    }
+
+    private HttpResponse<String> post(String path, Map<String, Object> body) throws Exception {
+        return send(HttpRequest.newBuilder(uri(path))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(json(body))));
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws Exception {
+        return client.send(request.timeout(Duration.ofSeconds(30)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private String json(Map<String, Object> body) {
+        try {
+            return mapper.writeValueAsString(body);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private URI uri(String pathAndQuery) {
+        return URI.create(target + pathAndQuery);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,130 @@
+package com.ai.repurposer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Starts several fake chat-completion upstreams at once so {@link UpstreamPool} routing, ejection and key benching
+ * can be watched locally. Each stub is {@code port:delayMs[:status[:key1|key2]]}: it sleeps {@code delayMs}, then
+ * answers with {@code status} (200 by default, 429 adds {@code Retry-After: 5}), and if keys are listed it answers
+ * 401 to any other bearer key. Not a test; run it from deploy-folder with
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.ai.repurposer.UpstreamStubs \
+ *     -Dexec.args="--stubs 9101:200,9102:1500,9103:100:503,9104:200:200:good"
+ * </pre>
+ * and point the instance at them with
+ * <pre>
+ * UPSTREAM_ENDPOINTS=http://127.0.0.1:9101/v1,http://127.0.0.1:9102/v1,http://127.0.0.1:9103/v1,http://127.0.0.1:9104/v1 \
+ *     UPSTREAM_API_KEYS=good,revoked java -jar target/repurposer-0.0.1-SNAPSHOT.jar
+ * </pre>
+ * Per-stub status counts are printed every {@code --report-seconds} (default 10) and on exit; compare them with
+ * {@code /admin/upstream}.
+ */
+public final class UpstreamStubs {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static void main(String[] argv) throws Exception {
+        Map<String, String> args = new HashMap<>();
+        for (int i = 0; i + 1 < argv.length; i += 2) {
+            if (!argv[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument " + argv[i]);
+            }
+            args.put(argv[i].substring(2), argv[i + 1]);
+        }
+        String spec = args.get("stubs");
+        if (spec == null || spec.isBlank()) {
+            throw new IllegalArgumentException("--stubs port:delayMs[:status[:key1|key2]],... is required");
+        }
+        Map<Integer, Map<Integer, AtomicLong>> counts = new TreeMap<>();
+        List<HttpServer> servers = new ArrayList<>();
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split(":");
+            int port = Integer.parseInt(parts[0]);
+            long delayMillis = parts.length > 1 ? Long.parseLong(parts[1]) : 0L;
+            int status = parts.length > 2 ? Integer.parseInt(parts[2]) : 200;
+            Set<String> keys = parts.length > 3 ? Set.of(parts[3].split("\\|")) : Set.of();
+            Map<Integer, AtomicLong> byStatus = new ConcurrentHashMap<>();
+            counts.put(port, byStatus);
+            servers.add(start(port, delayMillis, status, keys, byStatus));
+            System.out.printf("stub http://127.0.0.1:%d/v1 delay %d ms status %d%s%n", port, delayMillis, status,
+                keys.isEmpty() ? "" : " keys " + keys);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            servers.forEach(server -> server.stop(0));
+            report(counts);
+        }));
+        long reportMillis = Long.parseLong(args.getOrDefault("report-seconds", "10")) * 1000L;
+        while (true) {
+            Thread.sleep(reportMillis);
+            report(counts);
+        }
+    }
+
+    private static HttpServer start(int port, long delayMillis, int status, Set<String> keys,
+                                    Map<Integer, AtomicLong> byStatus) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        ExecutorService workers = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "upstream-stub-" + port);
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(workers);
+        server.createContext("/", exchange -> {
+            int promptChars;
+            try (InputStream in = exchange.getRequestBody()) {
+                promptChars = in.readAllBytes().length;
+            }
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            String key = authorization == null ? "" : authorization.replaceFirst("^Bearer ", "");
+            int code = !keys.isEmpty() && !keys.contains(key) ? 401 : status;
+            Object body = code == 200
+                ? Map.of(
+                    "choices", List.of(Map.of("message", Map.of("content",
+                        "Video 1\nStub output from " + port + "\n\nVideo 2\nStub output from " + port))),
+                    "usage", Map.of("prompt_tokens", promptChars / 4, "completion_tokens", 200,
+                        "total_tokens", promptChars / 4 + 200))
+                : Map.of("error", Map.of("message", "stub " + port + " answered " + code));
+            byte[] response = MAPPER.writeValueAsBytes(body);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            if (code == 429) {
+                exchange.getResponseHeaders().set("Retry-After", "5");
+            }
+            exchange.sendResponseHeaders(code, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+            byStatus.computeIfAbsent(code, ignored -> new AtomicLong()).incrementAndGet();
+        });
+        server.start();
+        return server;
+    }
+
+    private static void report(Map<Integer, Map<Integer, AtomicLong>> counts) {
+        Map<Integer, Map<Integer, Long>> snapshot = new LinkedHashMap<>();
+        counts.forEach((port, byStatus) -> {
+            Map<Integer, Long> statuses = new TreeMap<>();
+            byStatus.forEach((code, count) -> statuses.put(code, count.get()));
+            snapshot.put(port, statuses);
+        });
+        System.out.println("requests by stub and status " + snapshot);
+    }
+}